@@ -0,0 +1,23 @@
+package net.lachlanmckee.timberjunit.benchmarks;
+
+import net.lachlanmckee.timberjunit.LogSink;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A {@link LogSink} that discards the logs, so that the benchmarks measure the rule rather than
+ * the console. The written text is consumed by a {@link Blackhole} so that the formatting cannot
+ * be eliminated by the JIT compiler.
+ */
+final class BenchmarkLogSink implements LogSink {
+    private final Blackhole mBlackhole;
+
+    BenchmarkLogSink(Blackhole blackhole) {
+        mBlackhole = blackhole;
+    }
+
+    @Override
+    public void write(CharSequence text) {
+        mBlackhole.consume(text);
+    }
+}
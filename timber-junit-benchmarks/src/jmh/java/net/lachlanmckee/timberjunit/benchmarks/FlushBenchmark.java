@@ -0,0 +1,90 @@
+package net.lachlanmckee.timberjunit.benchmarks;
+
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * Measures a complete test which buffers a number of logs, for both a passing test (where the
+ * buffer is discarded) and a failing test (where the buffer is flushed). The difference between
+ * the two is the cost of flushing the buffer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FlushBenchmark {
+    private static final Description DESCRIPTION =
+            Description.createTestDescription(FlushBenchmark.class, "benchmark");
+
+    @Param({"10", "1000", "100000"})
+    public int bufferedRecords;
+
+    @Param({"true", "false"})
+    public boolean perThreadBuffers;
+
+    private Statement mPassingTest;
+    private Statement mFailingTest;
+
+    @Setup
+    public void createRule(Blackhole blackhole) {
+        Timber.uprootAll();
+
+        TimberTestRule rule = TimberTestRule.builder()
+                .onlyLogWhenTestFails(true)
+                .perThreadBuffers(perThreadBuffers)
+                .logSink(new BenchmarkLogSink(blackhole))
+                .build();
+
+        mPassingTest = rule.apply(new LoggingStatement(bufferedRecords, false), DESCRIPTION);
+        mFailingTest = rule.apply(new LoggingStatement(bufferedRecords, true), DESCRIPTION);
+    }
+
+    @Benchmark
+    public void passingTest() throws Throwable {
+        mPassingTest.evaluate();
+    }
+
+    @Benchmark
+    public void failingTest() throws Throwable {
+        try {
+            mFailingTest.evaluate();
+
+        } catch (AssertionError expected) {
+            // The failure causes the buffer to be flushed.
+        }
+    }
+
+    private static final class LoggingStatement extends Statement {
+        private final int mRecords;
+        private final boolean mFail;
+
+        LoggingStatement(int records, boolean fail) {
+            mRecords = records;
+            mFail = fail;
+        }
+
+        @Override
+        public void evaluate() {
+            for (int i = 0; i < mRecords; i++) {
+                Timber.tag("FlushBenchmark").d("Benchmark log");
+            }
+            if (mFail) {
+                throw new AssertionError("Benchmark failure");
+            }
+        }
+    }
+}
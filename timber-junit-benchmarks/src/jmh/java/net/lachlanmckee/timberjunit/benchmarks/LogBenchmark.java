@@ -0,0 +1,81 @@
+package net.lachlanmckee.timberjunit.benchmarks;
+
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+import timber.log.Timber;
+
+/**
+ * Measures the cost of a single log call while a {@link TimberTestRule} is planted, for each
+ * combination of the main rules.
+ * <p>
+ * When logs are buffered, the buffer is bounded so that the benchmark does not exhaust the heap.
+ * When logs are written immediately, they are formatted and then consumed by the sink. Run with
+ * {@code -prof gc} to measure the allocation rate of the formatting.
+ * <p>
+ * Logs rejected by the minimum priority are measured by {@link RejectedLogBenchmark}.
+ */
+@State(Scope.Benchmark)
+public class LogBenchmark {
+    private static final int MAX_BUFFERED_RECORDS = 100000;
+
+    @Param({"true", "false"})
+    public boolean onlyLogWhenTestFails;
+
+    @Param({"true", "false"})
+    public boolean showTimestamp;
+
+    @Param({"true", "false"})
+    public boolean showThread;
+
+    @Param({"true", "false"})
+    public boolean perThreadBuffers;
+
+    @Param({"STACK_TRACE", "EXPLICIT_ONLY"})
+    public TimberTestRule.TagStrategy tagStrategy;
+
+    private BenchmarkLogSink mSink;
+    private PlantedRule mPlantedRule;
+
+    @Setup(Level.Iteration)
+    public void plantRule(Blackhole blackhole) throws InterruptedException {
+        Timber.uprootAll();
+
+        mSink = new BenchmarkLogSink(blackhole);
+        mPlantedRule = new PlantedRule(TimberTestRule.builder()
+                .onlyLogWhenTestFails(onlyLogWhenTestFails)
+                .showTimestamp(showTimestamp)
+                .showThread(showThread)
+                .perThreadBuffers(perThreadBuffers)
+                .tagStrategy(tagStrategy)
+                .maxBufferedRecords(MAX_BUFFERED_RECORDS)
+                .logSink(mSink)
+                .build());
+    }
+
+    @TearDown(Level.Iteration)
+    public void uprootRule() throws InterruptedException {
+        mPlantedRule.finish();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void logSingleThreaded() {
+        Timber.d("Benchmark log");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void logMultiThreaded() {
+        Timber.d("Benchmark log");
+    }
+}
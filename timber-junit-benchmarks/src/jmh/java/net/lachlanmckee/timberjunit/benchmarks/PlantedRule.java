@@ -0,0 +1,50 @@
+package net.lachlanmckee.timberjunit.benchmarks;
+
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Evaluates a {@link TimberTestRule} on a background thread, keeping its tree planted until
+ * {@link #finish()} is called. This allows the benchmark threads to log into the tree.
+ */
+final class PlantedRule {
+    private final CountDownLatch mPlanted = new CountDownLatch(1);
+    private final CountDownLatch mFinished = new CountDownLatch(1);
+    private final Thread mTestThread;
+
+    PlantedRule(TimberTestRule rule) throws InterruptedException {
+        final Statement statement = rule.apply(new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                mPlanted.countDown();
+                mFinished.await();
+            }
+        }, Description.createTestDescription(PlantedRule.class, "benchmark"));
+
+        mTestThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    statement.evaluate();
+
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t);
+                }
+            }
+        }, "PlantedRule");
+        mTestThread.start();
+        mPlanted.await();
+    }
+
+    /**
+     * Completes the test, which uproots the tree.
+     */
+    void finish() throws InterruptedException {
+        mFinished.countDown();
+        mTestThread.join();
+    }
+}
@@ -0,0 +1,52 @@
+package net.lachlanmckee.timberjunit.benchmarks;
+
+import net.lachlanmckee.timberjunit.LogPriority;
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+import timber.log.Timber;
+
+/**
+ * Measures the cost of a log call which is rejected by the minimum priority of a planted
+ * {@link TimberTestRule}.
+ */
+@State(Scope.Benchmark)
+public class RejectedLogBenchmark {
+
+    @Param({"STACK_TRACE", "EXPLICIT_ONLY"})
+    public TimberTestRule.TagStrategy tagStrategy;
+
+    private PlantedRule mPlantedRule;
+
+    @Setup(Level.Iteration)
+    public void plantRule(Blackhole blackhole) throws InterruptedException {
+        Timber.uprootAll();
+
+        mPlantedRule = new PlantedRule(TimberTestRule.builder()
+                .onlyLogWhenTestFails(false)
+                .minPriority(LogPriority.DEBUG)
+                .tagStrategy(tagStrategy)
+                .logSink(new BenchmarkLogSink(blackhole))
+                .build());
+    }
+
+    @TearDown(Level.Iteration)
+    public void uprootRule() throws InterruptedException {
+        mPlantedRule.finish();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void logRejectedByPriority() {
+        Timber.v("Benchmark log");
+    }
+}
@@ -0,0 +1,118 @@
+package net.lachlanmckee.timberjunit.jupiter;
+
+import net.lachlanmckee.timberjunit.LogCapture;
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolutionException;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.junit.runner.Description;
+
+import timber.log.Timber;
+
+/**
+ * A JUnit 5 extension that plants a {@link Timber.Tree} before each test is executed, and uproots
+ * the {@link Timber.Tree} afterwards. This is the equivalent of {@link TimberTestRule} for the
+ * JUnit Jupiter engine, and supports the same {@link TimberTestRule.Rules}:
+ * <pre>
+ * &#64;RegisterExtension
+ * static final TimberExtension timber = new TimberExtension(TimberTestRule.builder()
+ *         .minPriority(LogPriority.ERROR));
+ * </pre>
+ * The extension may also be registered using {@code @ExtendWith(TimberExtension.class)}, in which
+ * case all logs are shown when a test fails. The logs are shown when the test, or any of its
+ * {@code @BeforeEach} or {@code @AfterEach} methods, fails.
+ * <p>
+ * Each test has its own {@link LogCapture}, which is kept in the store of the test's
+ * {@link ExtensionContext}, so tests executed concurrently never share a buffer. The buffers of
+ * completed tests are reused by subsequent tests. When tests are executed concurrently,
+ * {@link TimberTestRule.Rules#isolateParallelTests(boolean)} should be enabled so that each test
+ * only captures its own logs.
+ * <p>
+ * The capture of a test can be queried by declaring a {@link LogCapture} parameter on the test
+ * method, or on its {@code @BeforeEach} and {@code @AfterEach} methods:
+ * <pre>
+ * &#64;Test
+ * void test(LogCapture capture) {
+ *     capture.logs().assertCount(1);
+ * }
+ * </pre>
+ */
+public class TimberExtension implements BeforeEachCallback, AfterEachCallback,
+        ParameterResolver {
+
+    private static final String CAPTURE_KEY = "capture";
+
+    private final TimberTestRule mRule;
+    private final ExtensionContext.Namespace mNamespace;
+
+    /**
+     * Creates an extension that logs all messages when a test fails.
+     */
+    public TimberExtension() {
+        this(TimberTestRule.builder());
+    }
+
+    /**
+     * @param rules the rules which define how logs are captured and output.
+     * @throws IllegalArgumentException if the rules are invalid.
+     */
+    public TimberExtension(TimberTestRule.Rules rules) {
+        mRule = rules.build();
+        mNamespace = ExtensionContext.Namespace.create(TimberExtension.class, this);
+    }
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        context.getStore(mNamespace).put(CAPTURE_KEY, mRule.startCapture(describe(context)));
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) throws Exception {
+        LogCapture capture = context.getStore(mNamespace).remove(CAPTURE_KEY, LogCapture.class);
+        if (capture == null) {
+            return;
+        }
+
+        // The execution exception includes the failures of the lifecycle methods of the test.
+        capture.finish(context.getExecutionException().orElse(null));
+    }
+
+    @Override
+    public boolean supportsParameter(ParameterContext parameterContext,
+                                     ExtensionContext extensionContext) {
+
+        return parameterContext.getParameter().getType() == LogCapture.class
+                && extensionContext.getTestMethod().isPresent();
+    }
+
+    @Override
+    public Object resolveParameter(ParameterContext parameterContext,
+                                   ExtensionContext extensionContext) {
+
+        LogCapture capture = extensionContext.getStore(mNamespace)
+                .get(CAPTURE_KEY, LogCapture.class);
+        if (capture == null) {
+            throw new ParameterResolutionException(
+                    "Logs are only captured while a test is executing");
+        }
+        return capture;
+    }
+
+    /**
+     * Describes the test in the same way as JUnit 4, which is used to name failure log files. The
+     * display name is included when it differs from the method, such as for repeated tests.
+     */
+    private static Description describe(ExtensionContext context) {
+        String methodName = context.getRequiredTestMethod().getName();
+        String displayName = context.getDisplayName();
+        if (!displayName.startsWith(methodName + "(")) {
+            methodName += "[" + displayName + "]";
+        }
+        return Description.createTestDescription(context.getRequiredTestClass().getName(),
+                methodName);
+    }
+}
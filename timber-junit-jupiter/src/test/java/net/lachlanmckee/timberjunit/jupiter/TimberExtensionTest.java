@@ -0,0 +1,166 @@
+package net.lachlanmckee.timberjunit.jupiter;
+
+import net.lachlanmckee.timberjunit.LogCapture;
+import net.lachlanmckee.timberjunit.LogPriority;
+import net.lachlanmckee.timberjunit.LogRecords;
+import net.lachlanmckee.timberjunit.LogSinks;
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.LauncherDiscoveryRequest;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
+
+import java.io.StringWriter;
+
+import timber.log.Timber;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+import static org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder.request;
+
+class TimberExtensionTest {
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    private static final StringWriter writer = new StringWriter();
+
+    @RegisterExtension
+    final TimberExtension timber = new TimberExtension(TimberTestRule.builder()
+            .showThread(false)
+            .showTimestamp(false)
+            .minPriority(LogPriority.WARN)
+            .logSink(LogSinks.writer(writer)));
+
+    @Test
+    void logsAreCaptured(LogCapture capture) {
+        // when
+        Timber.tag("Test").i("Dropped");
+        Timber.tag("Test").e("Message");
+
+        // then
+        LogRecords records = capture.logs().assertCount(1);
+        assertEquals("E/Test: Message", records.get(0).toString());
+    }
+
+    @Test
+    void logsOfFailedTestsAreWritten() {
+        // when
+        SummaryGeneratingListener listener = execute(FailingTestFixture.class);
+
+        // then
+        assertEquals(1, listener.getSummary().getTestsSucceededCount());
+        assertEquals(1, listener.getSummary().getTestsFailedCount());
+        assertEquals("E/Fixture: Failing", FailingTestFixture.writer.toString().trim());
+    }
+
+    @Test
+    void logsOfFailedLifecycleMethodsAreWritten() {
+        // when
+        SummaryGeneratingListener listener = execute(FailingBeforeEachFixture.class);
+
+        // then
+        assertEquals(1, listener.getSummary().getTestsFailedCount());
+        assertEquals("E/Fixture: Before", FailingBeforeEachFixture.writer.toString().trim());
+    }
+
+    @Test
+    void testsOverBudgetFail() {
+        // when
+        SummaryGeneratingListener listener = execute(OverBudgetTestFixture.class);
+
+        // then
+        assertEquals(1, listener.getSummary().getTestsFailedCount());
+        assertEquals("E/Fixture: First" + LINE_SEPARATOR + "E/Fixture: Second",
+                OverBudgetTestFixture.writer.toString().trim());
+    }
+
+    private static SummaryGeneratingListener execute(Class<?> fixture) {
+        LauncherDiscoveryRequest request = request()
+                .selectors(selectClass(fixture))
+                .build();
+        Launcher launcher = LauncherFactory.create();
+        SummaryGeneratingListener listener = new SummaryGeneratingListener();
+        launcher.execute(request, listener);
+        return listener;
+    }
+
+    @AfterAll
+    static void verifyTreesAreUprooted() {
+        assertEquals(0, Timber.treeCount());
+        assertEquals("", writer.toString());
+    }
+
+    /**
+     * Executed by {@link #logsOfFailedTestsAreWritten()}. The name does not end with 'Test', so
+     * the fixture is not executed directly.
+     */
+    static class FailingTestFixture {
+        private static final StringWriter writer = new StringWriter();
+
+        @RegisterExtension
+        final TimberExtension timber = new TimberExtension(TimberTestRule.builder()
+                .showThread(false)
+                .showTimestamp(false)
+                .logSink(LogSinks.writer(writer)));
+
+        @Test
+        void passing() {
+            Timber.tag("Fixture").e("Passing");
+        }
+
+        @Test
+        void failing() {
+            Timber.tag("Fixture").e("Failing");
+            throw new AssertionError("Deliberately failing");
+        }
+    }
+
+    /**
+     * Executed by {@link #logsOfFailedLifecycleMethodsAreWritten()}.
+     */
+    static class FailingBeforeEachFixture {
+        private static final StringWriter writer = new StringWriter();
+
+        @RegisterExtension
+        final TimberExtension timber = new TimberExtension(TimberTestRule.builder()
+                .showThread(false)
+                .showTimestamp(false)
+                .logSink(LogSinks.writer(writer)));
+
+        @BeforeEach
+        void setUp() {
+            Timber.tag("Fixture").e("Before");
+            throw new IllegalStateException("Deliberately failing");
+        }
+
+        @Test
+        void test() {
+            Timber.tag("Fixture").e("Test");
+        }
+    }
+
+    /**
+     * Executed by {@link #testsOverBudgetFail()}.
+     */
+    static class OverBudgetTestFixture {
+        private static final StringWriter writer = new StringWriter();
+
+        @RegisterExtension
+        final TimberExtension timber = new TimberExtension(TimberTestRule.builder()
+                .showThread(false)
+                .showTimestamp(false)
+                .maxRecordsPerTest(1)
+                .budgetAction(TimberTestRule.BudgetAction.FAIL)
+                .logSink(LogSinks.writer(writer)));
+
+        @Test
+        void overBudget() {
+            Timber.tag("Fixture").e("First");
+            Timber.tag("Fixture").e("Second");
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.LogSink;
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.ExternalResource;
+import org.junit.rules.RuleChain;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.util.concurrent.CountDownLatch;
+
+@RunWith(Enclosed.class)
+public class LogTestWithAsyncBackPressure {
+
+    /**
+     * Logs four messages while the writer thread is blocked writing the first, so that the second
+     * fills the queue and the last two are dropped.
+     */
+    private static void logWhileWriterIsBlocked(BlockingLogSink sink) throws InterruptedException {
+        LogTester.log(LogTester.LogType.ERROR, "First");
+        sink.awaitWrite();
+
+        LogTester.log(LogTester.LogType.ERROR, "Second");
+        LogTester.log(LogTester.LogType.ERROR, "Third");
+        LogTester.log(LogTester.LogType.ERROR, "Fourth");
+        sink.release();
+    }
+
+    public static class Drop {
+        private static final BlockingLogSink sink = new BlockingLogSink();
+
+        @Rule
+        public TimberTestRule mTimberTestRule = TimberTestRule.builder()
+                .showThread(false)
+                .showTimestamp(false)
+                .onlyLogWhenTestFails(false)
+                .logSink(sink)
+                .asyncWrites(true)
+                .asyncQueueCapacity(1)
+                .asyncBackPressure(TimberTestRule.BackPressurePolicy.DROP)
+                .build();
+
+        @Test
+        public void givenFullQueue_whenLogsExecuted_thenLogsAreDropped() throws Exception {
+            logWhileWriterIsBlocked(sink);
+        }
+
+        @AfterClass
+        public static void verifyLogsAreDropped() {
+            Assert.assertEquals("E/LogTester: First\nE/LogTester: Second", sink.output());
+        }
+    }
+
+    public static class DropAndCount {
+        private static final BlockingLogSink sink = new BlockingLogSink();
+
+        @Rule
+        public TimberTestRule mTimberTestRule = TimberTestRule.builder()
+                .showThread(false)
+                .showTimestamp(false)
+                .onlyLogWhenTestFails(false)
+                .logSink(sink)
+                .asyncWrites(true)
+                .asyncQueueCapacity(1)
+                .asyncBackPressure(TimberTestRule.BackPressurePolicy.DROP_AND_COUNT)
+                .build();
+
+        @Test
+        public void givenFullQueue_whenLogsExecuted_thenDroppedLogsAreCounted() throws Exception {
+            logWhileWriterIsBlocked(sink);
+        }
+
+        @AfterClass
+        public static void verifyDroppedLogsAreCounted() {
+            Assert.assertEquals(
+                    "E/LogTester: First\nE/LogTester: Second\n... 2 logs were dropped ...",
+                    sink.output());
+        }
+    }
+
+    public static class SinkError {
+        private static final StringWriter writer = new StringWriter();
+
+        private ExpectedException expectedException = ExpectedException.none();
+
+        @Rule
+        public RuleChain chain = RuleChain
+                .outerRule(expectedException)
+                .around(TimberTestRule.builder()
+                        .showThread(false)
+                        .showTimestamp(false)
+                        .onlyLogWhenTestFails(false)
+                        .logSink(new LogSink() {
+                            @Override
+                            public void write(CharSequence text) {
+                                if (text.toString().contains("Fails")) {
+                                    throw new AssertionError("Sink failure");
+                                }
+                                writer.append(text);
+                            }
+                        })
+                        .asyncWrites(true)
+                        .build());
+
+        @Test
+        public void givenSinkError_whenTestFinishes_thenErrorIsThrown() {
+            expectedException.expect(AssertionError.class);
+            expectedException.expectMessage("Sink failure");
+
+            LogTester.log(LogTester.LogType.ERROR, "Fails");
+        }
+
+        @Test
+        public void givenEarlierSinkError_whenLogsExecuted_thenLogsAreStillWritten() {
+            LogTester.log(LogTester.LogType.ERROR, "Written");
+        }
+
+        @AfterClass
+        public static void verifyWriterSurvivesSinkError() {
+            Assert.assertEquals("E/LogTester: Written", writer.toString().trim());
+        }
+    }
+
+    public static class Interrupted {
+        private static final StringBuffer output = new StringBuffer();
+        private static final CountDownLatch writing = new CountDownLatch(1);
+        private static final CountDownLatch released = new CountDownLatch(1);
+
+        @Rule
+        public RuleChain chain = RuleChain
+                .outerRule(new ExternalResource() {
+                    @Override
+                    protected void after() {
+                        // The interrupt must survive the rule, and is cleared for later tests.
+                        Assert.assertTrue(Thread.interrupted());
+                    }
+                })
+                .around(TimberTestRule.builder()
+                        .showThread(false)
+                        .showTimestamp(false)
+                        .onlyLogWhenTestFails(false)
+                        .logSink(new LogSink() {
+                            @Override
+                            public void write(CharSequence text) throws IOException {
+                                if (text.toString().contains("Blocks")) {
+                                    writing.countDown();
+                                    try {
+                                        released.await();
+
+                                    } catch (InterruptedException e) {
+                                        throw new InterruptedIOException();
+                                    }
+                                }
+                                output.append(text);
+                            }
+                        })
+                        .asyncWrites(true)
+                        .asyncQueueCapacity(1)
+                        .build());
+
+        @Test
+        public void givenInterruptedThread_whenLogsExecuted_thenLogsAreWritten() {
+            Thread.currentThread().interrupt();
+
+            LogTester.log(LogTester.LogType.ERROR, "Interrupted");
+        }
+
+        @Test
+        public void givenInterruptedThread_whenQueueIsFull_thenLogsAreWritten() throws Exception {
+            LogTester.log(LogTester.LogType.ERROR, "Blocks");
+            writing.await();
+            LogTester.log(LogTester.LogType.ERROR, "Queued");
+
+            Thread.currentThread().interrupt();
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(100);
+
+                    } catch (InterruptedException ignored) {
+                        // The writer is released regardless.
+                    }
+                    released.countDown();
+                }
+            }).start();
+            LogTester.log(LogTester.LogType.ERROR, "Waited");
+        }
+
+        @AfterClass
+        public static void verifyLogsAreNotDropped() {
+            String text = output.toString().replace(System.lineSeparator(), "\n");
+            Assert.assertTrue(text, text.contains("E/LogTester: Interrupted"));
+            Assert.assertTrue(text, text.contains(
+                    "E/LogTester: Blocks\nE/LogTester: Queued\nE/LogTester: Waited"));
+        }
+    }
+
+    /**
+     * A sink which blocks the writer thread on its first write until released.
+     */
+    private static final class BlockingLogSink implements LogSink {
+        private final StringBuffer mOutput = new StringBuffer();
+        private final CountDownLatch mWriting = new CountDownLatch(1);
+        private final CountDownLatch mReleased = new CountDownLatch(1);
+
+        @Override
+        public void write(CharSequence text) throws IOException {
+            mWriting.countDown();
+            try {
+                mReleased.await();
+
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            mOutput.append(text);
+        }
+
+        void awaitWrite() throws InterruptedException {
+            mWriting.await();
+        }
+
+        void release() {
+            mReleased.countDown();
+        }
+
+        String output() {
+            return mOutput.toString().trim();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.OutputStream;
+
+public class LogTestWithAsyncWrites {
+    @Rule
+    public TimberTestRule mTimberTestRule = TimberTestRule.builder()
+            .showThread(false)
+            .showTimestamp(false)
+            .onlyLogWhenTestFails(false)
+            .asyncWrites(true)
+            .build();
+
+    private static OutputStream outputStream;
+
+    @BeforeClass
+    public static void setupConsoleOutput() {
+        outputStream = LogTesterTestUtils.setupConsoleOutputStream();
+    }
+
+    @Test
+    public void givenAsyncWrites_whenLogsExecuted_thenLogsAreWrittenBeforeTestCompletes() {
+        LogTester.log(LogTester.LogType.DEBUG, "First");
+        LogTester.log(LogTester.LogType.INFO, "Second");
+        LogTester.log(LogTester.LogType.ERROR, "Third");
+    }
+
+    @AfterClass
+    public static void verifyLogsAreOutputInOrder() {
+        LogTesterTestUtils.assertOutput(outputStream,
+                "D/LogTester: First\nI/LogTester: Second\nE/LogTester: Third");
+    }
+}
@@ -0,0 +1,177 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.RuleChain;
+import org.junit.runner.RunWith;
+
+import java.io.OutputStream;
+
+import static org.junit.Assert.fail;
+
+@RunWith(Enclosed.class)
+public class LogTestWithBufferLimits {
+
+    private static void logFiveMessages() {
+        for (int i = 1; i <= 5; i++) {
+            LogTester.log(LogTester.LogType.ERROR, "Test " + i);
+        }
+    }
+
+    public static class KeepLast {
+        private ExpectedException expectedException = ExpectedException.none();
+
+        @Rule
+        public RuleChain chain = RuleChain
+                .outerRule(expectedException)
+                .around(TimberTestRule.builder()
+                        .showThread(false)
+                        .showTimestamp(false)
+                        .onlyLogWhenTestFails(true)
+                        .maxBufferedRecords(2)
+                        .overflowPolicy(TimberTestRule.OverflowPolicy.KEEP_LAST)
+                        .build());
+
+        private static OutputStream outputStream;
+
+        @BeforeClass
+        public static void setupConsoleOutput() {
+            outputStream = LogTesterTestUtils.setupConsoleOutputStream();
+        }
+
+        @Test
+        public void deliberatelyFailingUnitTest() {
+            logFiveMessages();
+
+            expectedException.expect(AssertionError.class);
+            fail();
+        }
+
+        @AfterClass
+        public static void verifyBufferedOutput() {
+            LogTesterTestUtils.assertOutput(outputStream,
+                    "... 3 logs were discarded ...\nE/LogTester: Test 4\nE/LogTester: Test 5");
+        }
+    }
+
+    public static class KeepFirst {
+        private ExpectedException expectedException = ExpectedException.none();
+
+        @Rule
+        public RuleChain chain = RuleChain
+                .outerRule(expectedException)
+                .around(TimberTestRule.builder()
+                        .showThread(false)
+                        .showTimestamp(false)
+                        .onlyLogWhenTestFails(true)
+                        .maxBufferedRecords(2)
+                        .overflowPolicy(TimberTestRule.OverflowPolicy.KEEP_FIRST)
+                        .build());
+
+        private static OutputStream outputStream;
+
+        @BeforeClass
+        public static void setupConsoleOutput() {
+            outputStream = LogTesterTestUtils.setupConsoleOutputStream();
+        }
+
+        @Test
+        public void deliberatelyFailingUnitTest() {
+            logFiveMessages();
+
+            expectedException.expect(AssertionError.class);
+            fail();
+        }
+
+        @AfterClass
+        public static void verifyBufferedOutput() {
+            LogTesterTestUtils.assertOutput(outputStream,
+                    "E/LogTester: Test 1\nE/LogTester: Test 2\n... 3 logs were discarded ...");
+        }
+    }
+
+    public static class KeepFirstAndLast {
+        private ExpectedException expectedException = ExpectedException.none();
+
+        @Rule
+        public RuleChain chain = RuleChain
+                .outerRule(expectedException)
+                .around(TimberTestRule.builder()
+                        .showThread(false)
+                        .showTimestamp(false)
+                        .onlyLogWhenTestFails(true)
+                        .maxBufferedRecords(2)
+                        .overflowPolicy(TimberTestRule.OverflowPolicy.KEEP_FIRST_AND_LAST)
+                        .build());
+
+        private static OutputStream outputStream;
+
+        @BeforeClass
+        public static void setupConsoleOutput() {
+            outputStream = LogTesterTestUtils.setupConsoleOutputStream();
+        }
+
+        @Test
+        public void deliberatelyFailingUnitTest() {
+            logFiveMessages();
+
+            expectedException.expect(AssertionError.class);
+            fail();
+        }
+
+        @AfterClass
+        public static void verifyBufferedOutput() {
+            LogTesterTestUtils.assertOutput(outputStream,
+                    "E/LogTester: Test 1\n... 3 logs were discarded ...\nE/LogTester: Test 5");
+        }
+    }
+
+    public static class MaxBytes {
+        private ExpectedException expectedException = ExpectedException.none();
+
+        // Each log is estimated at 30 bytes, two bytes for each character of its tag and message.
+        @Rule
+        public RuleChain chain = RuleChain
+                .outerRule(expectedException)
+                .around(TimberTestRule.builder()
+                        .showThread(false)
+                        .showTimestamp(false)
+                        .onlyLogWhenTestFails(true)
+                        .maxBufferedBytes(70)
+                        .build());
+
+        private static OutputStream outputStream;
+
+        @BeforeClass
+        public static void setupConsoleOutput() {
+            outputStream = LogTesterTestUtils.setupConsoleOutputStream();
+        }
+
+        @Test
+        public void deliberatelyFailingUnitTest() {
+            logFiveMessages();
+
+            // A log larger than the limit is discarded without evicting the buffered logs.
+            StringBuilder message = new StringBuilder();
+            for (int i = 0; i < 40; i++) {
+                message.append('x');
+            }
+            LogTester.log(LogTester.LogType.ERROR, message.toString());
+
+            expectedException.expect(AssertionError.class);
+            fail();
+        }
+
+        @AfterClass
+        public static void verifyBufferedOutput() {
+            LogTesterTestUtils.assertOutput(outputStream,
+                    "... 4 logs were discarded ...\nE/LogTester: Test 4\nE/LogTester: Test 5");
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.RuleChain;
+import org.junit.runners.MethodSorters;
+
+import java.io.OutputStream;
+import java.util.List;
+
+import timber.log.Timber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class LogTestWithClassRule {
+
+    private static final TimberTestRule timberTestRule = TimberTestRule.builder()
+            .showThread(false)
+            .showTimestamp(false)
+            .onlyLogWhenTestFails(true)
+            .build();
+
+    @ClassRule
+    public static final TimberTestRule classRule = timberTestRule;
+
+    private ExpectedException expectedException = ExpectedException.none();
+
+    @Rule
+    public RuleChain chain = RuleChain
+            .outerRule(expectedException)
+            .around(timberTestRule);
+
+    private static OutputStream outputStream;
+    private static List<Timber.Tree> forest;
+
+    @BeforeClass
+    public static void setupConsoleOutput() {
+        outputStream = LogTesterTestUtils.setupConsoleOutputStream();
+        forest = Timber.forest();
+    }
+
+    @Test
+    public void firstPassingUnitTest() {
+        LogTester.log(LogTester.LogType.ERROR, "First");
+
+        // then
+        assertEquals(1, forest.size());
+        assertEquals(forest, Timber.forest());
+    }
+
+    @Test
+    public void secondDeliberatelyFailingUnitTest() {
+        LogTester.log(LogTester.LogType.ERROR, "Second");
+
+        // then
+        assertEquals(forest, Timber.forest());
+
+        expectedException.expect(AssertionError.class);
+        fail();
+    }
+
+    @AfterClass
+    public static void verifyOnlyFailingTestIsOutput() {
+        LogTesterTestUtils.assertOutput(outputStream, "E/LogTester: Second");
+    }
+}
@@ -0,0 +1,51 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.LogSinks;
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class LogTestWithClassRuleOnly {
+
+    private static final StringWriter writer = new StringWriter();
+
+    @Test
+    public void givenOnlyClassRule_whenTestFails_thenWarningIsWritten() {
+        // when
+        Result result = JUnitCore.runClasses(ClassRuleOnlyFixture.class);
+
+        // then
+        assertEquals(1, result.getFailureCount());
+        assertEquals("... TimberTestRule was only used as a @ClassRule by "
+                        + ClassRuleOnlyFixture.class.getName() + ", so the logs of failing tests "
+                        + "were not written. Use the same instance as a @Rule as well ...",
+                writer.toString().trim());
+    }
+
+    /**
+     * Executed by {@link #givenOnlyClassRule_whenTestFails_thenWarningIsWritten()}.
+     */
+    public static class ClassRuleOnlyFixture {
+        @ClassRule
+        public static final TimberTestRule timberTestRule = TimberTestRule.builder()
+                .showThread(false)
+                .showTimestamp(false)
+                .onlyLogWhenTestFails(true)
+                .logSink(LogSinks.writer(writer))
+                .build();
+
+        @Test
+        public void deliberatelyFailingUnitTest() {
+            LogTester.log(LogTester.LogType.ERROR, "Failing");
+            fail();
+        }
+    }
+}
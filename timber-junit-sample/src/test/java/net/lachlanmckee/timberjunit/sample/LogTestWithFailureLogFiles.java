@@ -0,0 +1,129 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.LogSinks;
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.RuleChain;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+@RunWith(Enclosed.class)
+public class LogTestWithFailureLogFiles {
+
+    private static final File directory =
+            new File(System.getProperty("java.io.tmpdir"), "timber-junit-" + System.nanoTime());
+
+    private static TimberTestRule createRule(StringWriter writer, boolean compress) {
+        return TimberTestRule.builder()
+                .showThread(false)
+                .showTimestamp(false)
+                .onlyLogWhenTestFails(true)
+                .failureLogDirectory(directory)
+                .compressFailureLogs(compress)
+                .logSink(LogSinks.writer(writer))
+                .build();
+    }
+
+    private static String read(InputStream inputStream) throws IOException {
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+            return outputStream.toString("UTF-8");
+
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static void verifyFile(StringWriter writer, String fileName, String content,
+                                   boolean compress) throws IOException {
+
+        File file = new File(directory, fileName);
+        assertEquals("Logs were written to " + file.getPath(), writer.toString().trim());
+
+        InputStream inputStream = new FileInputStream(file);
+        if (compress) {
+            inputStream = new GZIPInputStream(inputStream);
+        }
+        assertEquals(content, read(inputStream).trim());
+        if (!file.delete()) {
+            fail("Unable to delete " + file);
+        }
+        // The directory is only removed once it is empty.
+        directory.delete();
+    }
+
+    public static class Uncompressed {
+        private static final StringWriter writer = new StringWriter();
+
+        private final ExpectedException expectedException = ExpectedException.none();
+
+        @Rule
+        public RuleChain chain = RuleChain
+                .outerRule(expectedException)
+                .around(createRule(writer, false));
+
+        @Test
+        public void deliberatelyFailingUnitTest() {
+            LogTester.log(LogTester.LogType.ERROR, "Test \u00e9\u4e2d");
+
+            expectedException.expect(AssertionError.class);
+            fail();
+        }
+
+        @AfterClass
+        public static void verifyLogFile() throws IOException {
+            verifyFile(writer, Uncompressed.class.getName() + ".deliberatelyFailingUnitTest.log",
+                    "E/LogTester: Test \u00e9\u4e2d", false);
+        }
+    }
+
+    public static class Compressed {
+        private static final StringWriter writer = new StringWriter();
+
+        private final ExpectedException expectedException = ExpectedException.none();
+
+        @Rule
+        public RuleChain chain = RuleChain
+                .outerRule(expectedException)
+                .around(createRule(writer, true));
+
+        @Test
+        public void passingUnitTest() {
+            LogTester.log(LogTester.LogType.ERROR, "Not written");
+        }
+
+        @Test
+        public void deliberatelyFailingUnitTest() {
+            LogTester.log(LogTester.LogType.ERROR, "Test");
+
+            expectedException.expect(AssertionError.class);
+            fail();
+        }
+
+        @AfterClass
+        public static void verifyLogFile() throws IOException {
+            verifyFile(writer, Compressed.class.getName() + ".deliberatelyFailingUnitTest.log.gz",
+                    "E/LogTester: Test", true);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.LogSinks;
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import java.io.StringWriter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+
+import timber.log.Timber;
+
+public class LogTestWithIsolatedParallelTests {
+
+    private final CyclicBarrier testsStarted = new CyclicBarrier(3);
+    private final CountDownLatch unownedLogWritten = new CountDownLatch(1);
+
+    @Test
+    public void logsAreOnlyCapturedByTheirOwnTest() throws Throwable {
+        // given
+        StringWriter firstWriter = new StringWriter();
+        StringWriter secondWriter = new StringWriter();
+
+        Thread firstTest = runTest(firstWriter, "First");
+        Thread secondTest = runTest(secondWriter, "Second");
+
+        // when
+        firstTest.start();
+        secondTest.start();
+
+        // Logs from threads which are not associated with a test are captured by every test.
+        testsStarted.await();
+        LogTester.log(LogTester.LogType.INFO, "Unowned");
+        unownedLogWritten.countDown();
+
+        firstTest.join();
+        secondTest.join();
+
+        // then
+        Assert.assertEquals("I/LogTester: First\nI/LogTester: First child\nI/LogTester: Unowned",
+                firstWriter.toString().trim());
+        Assert.assertEquals("I/LogTester: Second\nI/LogTester: Second child\nI/LogTester: Unowned",
+                secondWriter.toString().trim());
+        Assert.assertEquals(0, Timber.treeCount());
+    }
+
+    private Thread runTest(StringWriter writer, final String message) {
+        TimberTestRule rule = TimberTestRule.builder()
+                .showThread(false)
+                .showTimestamp(false)
+                .onlyLogWhenTestFails(false)
+                .isolateParallelTests(true)
+                .logSink(LogSinks.writer(writer))
+                .build();
+
+        final Statement statement = rule.apply(new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                LogTester.log(LogTester.LogType.INFO, message);
+
+                // Threads created by the test are associated with the test.
+                Thread child = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        LogTester.log(LogTester.LogType.INFO, message + " child");
+                    }
+                });
+                child.start();
+                child.join();
+
+                testsStarted.await();
+                unownedLogWritten.await();
+            }
+        }, Description.createTestDescription(LogTestWithIsolatedParallelTests.class, message));
+
+        return new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    statement.evaluate();
+
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.LogSinks;
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.AfterClass;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.RuleChain;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Enclosed.class)
+public class LogTestWithLogBudgets {
+
+    private static TimberTestRule.Rules createRules(StringWriter writer) {
+        return TimberTestRule.builder()
+                .showThread(false)
+                .showTimestamp(false)
+                .logSink(LogSinks.writer(writer));
+    }
+
+    @FixMethodOrder(MethodSorters.NAME_ASCENDING)
+    public static class Warn {
+        private static final StringWriter writer = new StringWriter();
+
+        @Rule
+        public TimberTestRule timberTestRule = createRules(writer)
+                .maxRecordsPerTest(2)
+                .build();
+
+        @Test
+        public void firstTestWithinBudget() {
+            LogTester.log(LogTester.LogType.ERROR, "First");
+            LogTester.log(LogTester.LogType.ERROR, "Second");
+        }
+
+        @Test
+        public void secondTestOverBudget() {
+            LogTester.log(LogTester.LogType.ERROR, "First");
+            LogTester.log(LogTester.LogType.ERROR, "Second");
+            LogTester.log(LogTester.LogType.ERROR, "Third");
+        }
+
+        @AfterClass
+        public static void verifyWarningIsWritten() {
+            assertEquals("... secondTestOverBudget(" + Warn.class.getName() + ") logged 3 times, "
+                    + "exceeding the budget of 2 ...", writer.toString().trim());
+        }
+    }
+
+    public static class Fail {
+        private static final StringWriter writer = new StringWriter();
+
+        private final ExpectedException expectedException = ExpectedException.none();
+
+        @Rule
+        public RuleChain chain = RuleChain
+                .outerRule(expectedException)
+                .around(createRules(writer)
+                        .maxRecordsPerTest(1)
+                        .budgetAction(TimberTestRule.BudgetAction.FAIL)
+                        .build());
+
+        @Test
+        public void deliberatelyFailingUnitTest() {
+            expectedException.expect(AssertionError.class);
+            expectedException.expectMessage("logged 2 times, exceeding the budget of 1");
+
+            LogTester.log(LogTester.LogType.ERROR, "First");
+            LogTester.log(LogTester.LogType.ERROR, "Second");
+        }
+
+        @AfterClass
+        public static void verifyLogsAreWritten() {
+            assertEquals("E/LogTester: First\nE/LogTester: Second", writer.toString().trim());
+        }
+    }
+
+    public static class LogTime {
+        private static final StringWriter writer = new StringWriter();
+
+        @Rule
+        public TimberTestRule timberTestRule = createRules(writer)
+                .maxLogTimePerTest(0, TimeUnit.NANOSECONDS)
+                .build();
+
+        @Test
+        public void testOverBudget() {
+            LogTester.log(LogTester.LogType.ERROR, "First");
+        }
+
+        @AfterClass
+        public static void verifyWarningIsWritten() {
+            String output = writer.toString().trim();
+            assertTrue(output, output.startsWith("... testOverBudget(" + LogTime.class.getName()
+                    + ") spent "));
+            assertTrue(output,
+                    output.endsWith(" ms logging, exceeding the budget of 0.000 ms ..."));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.LogPriority;
+import net.lachlanmckee.timberjunit.LogRecord;
+import net.lachlanmckee.timberjunit.LogRecords;
+import net.lachlanmckee.timberjunit.LogSinks;
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import java.io.StringWriter;
+
+import timber.log.Timber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(Enclosed.class)
+public class LogTestWithLogQueries {
+
+    public static class WhenTestFails {
+        @Rule
+        public TimberTestRule timberTestRule = TimberTestRule.logAllWhenTestFails();
+
+        @Test
+        public void logsAreQueriedByPriority() {
+            // given
+            LogTester.log(LogTester.LogType.DEBUG, "First");
+            LogTester.log(LogTester.LogType.ERROR, "Second");
+            LogTester.log(LogTester.LogType.ERROR, "Third");
+
+            // when
+            LogRecords records = timberTestRule.logs().withPriority(LogPriority.ERROR);
+
+            // then
+            records.assertCount(2);
+            assertEquals("Second", records.get(0).getMessage());
+            assertEquals("Third", records.get(1).getMessage());
+            timberTestRule.logs().withMinPriority(LogPriority.INFO).assertCount(2);
+            timberTestRule.logs().withPriority(LogPriority.WARN).assertEmpty();
+        }
+
+        @Test
+        public void logsAreQueriedByTagAndMessage() {
+            // given
+            Timber.tag("Network").i("Request timed out after 30 seconds");
+            Timber.tag("Network").i("Request succeeded");
+            LogTester.log(LogTester.LogType.INFO, "Request timed out");
+
+            // when
+            LogRecords records = timberTestRule.logs()
+                    .withTag("Network")
+                    .withMessageMatching("timed out after \\d+ seconds");
+
+            // then
+            records.assertCount(1);
+            assertEquals("I/Network: Request timed out after 30 seconds",
+                    records.get(0).toString());
+            timberTestRule.logs().withTag("LogTester").assertCount(1);
+            timberTestRule.logs().withTag("Unknown").assertEmpty();
+        }
+
+        @Test
+        public void logsContainTheThrowable() {
+            // given
+            IllegalStateException exception = new IllegalStateException("Failure");
+
+            // when
+            LogTester.log(LogTester.LogType.ERROR, "Test", exception);
+
+            // then
+            LogRecord record = timberTestRule.logs().assertCount(1).get(0);
+            assertEquals(LogPriority.ERROR, record.getPriority());
+            assertEquals("LogTester", record.getTag());
+            assertSame(exception, record.getThrowable());
+            assertEquals(Thread.currentThread().getName(), record.getThreadName());
+        }
+
+        @Test
+        public void failedAssertionsDescribeTheLogs() {
+            // given
+            LogTester.log(LogTester.LogType.INFO, "First");
+
+            // when
+            try {
+                timberTestRule.logs().assertCount(2);
+                fail();
+
+            } catch (AssertionError e) {
+                // then
+                assertEquals("Expected 2 logs, but found 1:\nI/LogTester: First", e.getMessage());
+            }
+        }
+    }
+
+    public static class WhenAlwaysLogging {
+        private final StringWriter writer = new StringWriter();
+
+        @Rule
+        public TimberTestRule timberTestRule = TimberTestRule.builder()
+                .showTimestamp(false)
+                .showThread(true)
+                .onlyLogWhenTestFails(false)
+                .retainLogs(true)
+                .logSink(LogSinks.writer(writer))
+                .build();
+
+        @Test
+        public void logsAreRetained() {
+            // given
+            LogTester.log(LogTester.LogType.WARN, "Test");
+
+            // when
+            LogRecord record = timberTestRule.logs().assertCount(1).get(0);
+
+            // then
+            assertEquals("W/LogTester: Test", record.toString());
+            assertEquals(Thread.currentThread().getId(), record.getThreadId());
+            assertEquals(Thread.currentThread().getName(), record.getThreadName());
+            assertTrue(writer.toString().trim().endsWith("W/LogTester: Test"));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.LogSinks;
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.RuleChain;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.fail;
+
+public class LogTestWithLogSink {
+
+    private static final StringWriter writer = new StringWriter();
+
+    private ExpectedException expectedException = ExpectedException.none();
+
+    @Rule
+    public RuleChain chain = RuleChain
+            .outerRule(expectedException)
+            .around(TimberTestRule.builder()
+                    .showThread(false)
+                    .showTimestamp(false)
+                    .onlyLogWhenTestFails(true)
+                    .logSink(LogSinks.writer(writer))
+                    .build());
+
+    @Test
+    public void deliberatelyFailingUnitTest() {
+        LogTester.log(LogTester.LogType.INFO, "First");
+        LogTester.log(LogTester.LogType.ERROR, "Second");
+
+        expectedException.expect(AssertionError.class);
+        // given
+
+        // when
+
+        // then
+        fail();
+    }
+
+    @AfterClass
+    public static void verifyLogsAreWrittenToSink() {
+        Assert.assertEquals("I/LogTester: First\nE/LogTester: Second", writer.toString().trim());
+    }
+}
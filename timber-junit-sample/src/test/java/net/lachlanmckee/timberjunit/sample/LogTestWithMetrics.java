@@ -0,0 +1,114 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.CaptureMetrics;
+import net.lachlanmckee.timberjunit.LogPriority;
+import net.lachlanmckee.timberjunit.LogSinks;
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.RuleChain;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import timber.log.Timber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LogTestWithMetrics {
+
+    private static final Map<String, CaptureMetrics> metrics = new ConcurrentHashMap<>();
+
+    @Test
+    public void metricsAreReportedForEachTestAndTestClass() {
+        // when
+        Result result = JUnitCore.runClasses(MetricsFixture.class);
+
+        // then
+        assertEquals(0, result.getFailureCount());
+
+        CaptureMetrics passing = metrics.get("passingUnitTest");
+        assertEquals(2, passing.getCapturedCount());
+        assertEquals(1, passing.getRejectedCount());
+        assertTrue(passing.getBufferedBytes() > 0);
+        assertEquals(0, passing.getFormatNanos());
+        assertEquals(0, passing.getFlushNanos());
+
+        CaptureMetrics failing = metrics.get("deliberatelyFailingUnitTest");
+        assertEquals(1, failing.getCapturedCount());
+        assertEquals(0, failing.getRejectedCount());
+        assertTrue(failing.getFormatNanos() > 0);
+        assertTrue(failing.getFlushNanos() > 0);
+
+        // The class includes the log created before its tests.
+        CaptureMetrics testClass = metrics.get(MetricsFixture.class.getName());
+        assertEquals(4, testClass.getCapturedCount());
+        assertEquals(1, testClass.getRejectedCount());
+        assertEquals(failing.getFlushNanos(), testClass.getFlushNanos());
+    }
+
+    /**
+     * Executed by {@link #metricsAreReportedForEachTestAndTestClass()}, as the metrics of the
+     * class are only reported once the class completes.
+     */
+    public static class MetricsFixture {
+        private static final TimberTestRule timberTestRule = TimberTestRule.builder()
+                .showThread(false)
+                .showTimestamp(false)
+                .minPriority(LogPriority.INFO)
+                .logSink(LogSinks.writer(new StringWriter()))
+                .listener(new TimberTestRule.Listener() {
+                    @Override
+                    public void testFinished(Description description, CaptureMetrics testMetrics) {
+                        metrics.put(description.getMethodName(), testMetrics);
+                    }
+
+                    @Override
+                    public void testClassFinished(Description description,
+                                                  CaptureMetrics classMetrics) {
+                        metrics.put(description.getClassName(), classMetrics);
+                    }
+                })
+                .build();
+
+        @ClassRule
+        public static final TimberTestRule classRule = timberTestRule;
+
+        private final ExpectedException expectedException = ExpectedException.none();
+
+        @Rule
+        public RuleChain chain = RuleChain
+                .outerRule(expectedException)
+                .around(timberTestRule);
+
+        @BeforeClass
+        public static void logBeforeTests() {
+            Timber.tag("Metrics").w("Before tests");
+        }
+
+        @Test
+        public void passingUnitTest() {
+            Timber.tag("Metrics").i("First");
+            Timber.tag("Metrics").d("Rejected");
+            Timber.tag("Metrics").e("Second");
+        }
+
+        @Test
+        public void deliberatelyFailingUnitTest() {
+            Timber.tag("Metrics").i("Flushed");
+
+            expectedException.expect(AssertionError.class);
+            fail();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.OutputStream;
+
+public class LogTestWithMicrosecondTimestampRules {
+    @Rule
+    public TimberTestRule mTimberTestRule = TimberTestRule.builder()
+            .showTimestamp(true)
+            .timestampPrecision(TimberTestRule.TimestampPrecision.MICROSECONDS)
+            .onlyLogWhenTestFails(false)
+            .build();
+
+    @Test
+    public void givenOutputStreamSetup_whenLogExecuted_thenVerifyMicrosecondsAreOutput() {
+        // given
+        OutputStream outputStream = LogTesterTestUtils.setupConsoleOutputStream();
+
+        // when
+        LogTester.log(LogTester.LogType.ERROR, "Test");
+
+        // then
+        String output = outputStream.toString().trim();
+        Assert.assertTrue(output, output.matches("\\d{2}:\\d{2}:\\d{2}\\.\\d{6} E/LogTester: Test"));
+    }
+}
@@ -0,0 +1,42 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.LogSinks;
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+public class LogTestWithPattern {
+
+    private static final StringWriter writer = new StringWriter();
+
+    @Rule
+    public TimberTestRule timberTestRule = TimberTestRule.builder()
+            .onlyLogWhenTestFails(false)
+            .pattern("[%level] %tag (%thread) - %msg 100%%")
+            .logSink(LogSinks.writer(writer))
+            .build();
+
+    @Test
+    public void logsUseThePattern() {
+        LogTester.log(LogTester.LogType.WARN, "Test");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownPlaceholdersAreRejected() {
+        TimberTestRule.builder()
+                .pattern("%level %unknown")
+                .build();
+    }
+
+    @AfterClass
+    public static void verifyLogsUseThePattern() {
+        Thread thread = Thread.currentThread();
+        Assert.assertEquals("[W] LogTester (" + thread.getId() + "/" + thread.getName()
+                + ") - Test 100%", writer.toString().trim());
+    }
+}
@@ -0,0 +1,66 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.RuleChain;
+
+import java.io.OutputStream;
+
+import static org.junit.Assert.fail;
+
+public class LogTestWithPerThreadBuffers {
+
+    private ExpectedException expectedException = ExpectedException.none();
+
+    @Rule
+    public RuleChain chain = RuleChain
+            .outerRule(expectedException)
+            .around(TimberTestRule.builder()
+                    .showThread(false)
+                    .showTimestamp(false)
+                    .onlyLogWhenTestFails(true)
+                    .perThreadBuffers(true)
+                    .build());
+
+    private static OutputStream outputStream;
+
+    @BeforeClass
+    public static void setupConsoleOutput() {
+        outputStream = LogTesterTestUtils.setupConsoleOutputStream();
+    }
+
+    @Test
+    public void deliberatelyFailingUnitTest() throws InterruptedException {
+        LogTester.log(LogTester.LogType.DEBUG, "First");
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                LogTester.log(LogTester.LogType.INFO, "Second");
+            }
+        });
+        thread.start();
+        thread.join();
+
+        LogTester.log(LogTester.LogType.ERROR, "Third");
+
+        expectedException.expect(AssertionError.class);
+        // given
+
+        // when
+
+        // then
+        fail();
+    }
+
+    @AfterClass
+    public static void verifyLogsAreOutputInOrder() {
+        LogTesterTestUtils.assertOutput(outputStream,
+                "D/LogTester: First\nI/LogTester: Second\nE/LogTester: Third");
+    }
+}
@@ -0,0 +1,61 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.LogPriority;
+import net.lachlanmckee.timberjunit.LogRecords;
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import timber.log.Timber;
+
+import static org.junit.Assert.assertEquals;
+
+public class LogTestWithPriorityFilters {
+
+    @Rule
+    public TimberTestRule timberTestRule = TimberTestRule.builder()
+            .minPriority(LogPriority.INFO)
+            .tagPrefixMinPriority("Net", LogPriority.ERROR)
+            .tagPrefixMinPriority("NetworkCache", LogPriority.VERBOSE)
+            .tagMinPriority("NetworkCacheStats", LogPriority.ASSERT)
+            .packageMinPriority("net.lachlanmckee", LogPriority.VERBOSE)
+            .packageMinPriority("net.lachlanmckee.timberjunit.sample", LogPriority.ERROR)
+            .build();
+
+    @Test
+    public void theLongestTagPrefixApplies() {
+        // when
+        Timber.tag("Network").w("Dropped");
+        Timber.tag("Network").e("Network error");
+        Timber.tag("NetworkCacheHits").v("Cache message");
+        Timber.tag("NetworkCacheStats").e("Dropped");
+
+        // then
+        LogRecords records = timberTestRule.logs().assertCount(2);
+        assertEquals("E/Network: Network error", records.get(0).toString());
+        assertEquals("V/NetworkCacheHits: Cache message", records.get(1).toString());
+    }
+
+    @Test
+    public void theLongestPackageOfTheCallingClassApplies() {
+        // when
+        LogTester.log(LogTester.LogType.WARN, "Dropped");
+        LogTester.log(LogTester.LogType.ERROR, "Sample error");
+
+        // then
+        LogRecords records = timberTestRule.logs().assertCount(1);
+        assertEquals("E/LogTester: Sample error", records.get(0).toString());
+    }
+
+    @Test
+    public void tagsTakePrecedenceOverPackages() {
+        // when
+        Timber.tag("NetworkCacheHits").d("Cache message");
+        Timber.tag("Other").w("Dropped");
+
+        // then
+        LogRecords records = timberTestRule.logs().assertCount(1);
+        assertEquals("D/NetworkCacheHits: Cache message", records.get(0).toString());
+    }
+}
@@ -0,0 +1,90 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.LogRecords;
+import net.lachlanmckee.timberjunit.LogSinks;
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.RuleChain;
+import org.junit.runner.RunWith;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({System.class, TimberTestRule.class})
+public class LogTestWithRetentionWindow {
+
+    private static final StringWriter writer = new StringWriter();
+
+    private final TimberTestRule timberTestRule = TimberTestRule.builder()
+            .showThread(false)
+            .showTimestamp(false)
+            .retentionWindow(10, TimeUnit.SECONDS)
+            .logSink(LogSinks.writer(writer))
+            .build();
+
+    private final ExpectedException expectedException = ExpectedException.none();
+
+    @Rule
+    public RuleChain chain = RuleChain
+            .outerRule(expectedException)
+            .around(timberTestRule);
+
+    /**
+     * Logs at 0, 5, 12 and 16 seconds, and then queries or flushes the logs at 20 seconds.
+     */
+    private static void logOverTime() {
+        PowerMockito.mockStatic(System.class);
+        PowerMockito.when(System.currentTimeMillis())
+                .thenReturn(1500000000000L, 1500000005000L, 1500000012000L, 1500000016000L,
+                        1500000020000L);
+
+        LogTester.log(LogTester.LogType.ERROR, "First");
+        LogTester.log(LogTester.LogType.ERROR, "Second");
+        LogTester.log(LogTester.LogType.ERROR, "Third");
+        LogTester.log(LogTester.LogType.ERROR, "Fourth");
+    }
+
+    @Test
+    public void queriedLogsAreWithinTheWindow() {
+        // when
+        logOverTime();
+
+        // then
+        LogRecords records = timberTestRule.logs().assertCount(2);
+        assertEquals("E/LogTester: Third", records.get(0).toString());
+        assertEquals("E/LogTester: Fourth", records.get(1).toString());
+    }
+
+    @Test
+    public void deliberatelyFailingUnitTest() {
+        logOverTime();
+
+        expectedException.expect(AssertionError.class);
+        fail();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void retentionWindowCannotBeCombinedWithSpilling() {
+        TimberTestRule.builder()
+                .spillToDisk(2)
+                .retentionWindow(1, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @AfterClass
+    public static void verifyOnlyTheWindowIsWritten() {
+        assertEquals("... 2 logs were discarded ...\nE/LogTester: Third\nE/LogTester: Fourth",
+                writer.toString().trim());
+    }
+}
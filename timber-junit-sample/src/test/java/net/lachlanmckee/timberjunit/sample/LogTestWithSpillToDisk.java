@@ -0,0 +1,82 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.LogRecords;
+import net.lachlanmckee.timberjunit.LogSinks;
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.RuleChain;
+
+import java.io.StringWriter;
+
+import timber.log.Timber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class LogTestWithSpillToDisk {
+
+    private static final StringWriter writer = new StringWriter();
+
+    private final ExpectedException expectedException = ExpectedException.none();
+
+    private final TimberTestRule timberTestRule = TimberTestRule.builder()
+            .showThread(false)
+            .showTimestamp(false)
+            .onlyLogWhenTestFails(true)
+            .spillToDisk(2)
+            .logSink(LogSinks.writer(writer))
+            .build();
+
+    @Rule
+    public RuleChain chain = RuleChain
+            .outerRule(expectedException)
+            .around(timberTestRule);
+
+    @Test
+    public void spilledLogsCanBeQueried() {
+        // given
+        IllegalStateException exception = new IllegalStateException("Failure");
+
+        // when
+        for (int i = 1; i <= 4; i++) {
+            Timber.tag("Spilled").i("Test " + i);
+        }
+        Timber.tag("Spilled").e(exception, "Test 5");
+
+        // then
+        LogRecords records = timberTestRule.logs().assertCount(5);
+        for (int i = 0; i < 4; i++) {
+            assertEquals("I/Spilled: Test " + (i + 1), records.get(i).toString());
+        }
+        assertSame(exception, records.get(4).getThrowable());
+    }
+
+    @Test
+    public void failingTestWritesTheSpilledLogs() {
+        for (int i = 1; i <= 5; i++) {
+            LogTester.log(LogTester.LogType.ERROR, "Test " + i);
+        }
+
+        expectedException.expect(AssertionError.class);
+        fail();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void spillingCannotBeCombinedWithBufferLimits() {
+        TimberTestRule.builder()
+                .spillToDisk(2)
+                .maxBufferedRecords(10)
+                .build();
+    }
+
+    @AfterClass
+    public static void verifySpilledLogsAreWritten() {
+        assertEquals("E/LogTester: Test 1\nE/LogTester: Test 2\nE/LogTester: Test 3\n"
+                + "E/LogTester: Test 4\nE/LogTester: Test 5", writer.toString().trim());
+    }
+}
@@ -0,0 +1,83 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.LogSinks;
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+public class LogTestWithStackTraceOptions {
+
+    private final StringWriter writer = new StringWriter();
+
+    @Rule
+    public TimberTestRule timberTestRule = TimberTestRule.builder()
+            .showThread(false)
+            .showTimestamp(false)
+            .onlyLogWhenTestFails(false)
+            .maxStackTraceFrames(2)
+            .collapseCommonStackTraceFrames(true)
+            .dedupeStackTraces(true)
+            .logSink(LogSinks.writer(writer))
+            .build();
+
+    @Test
+    public void framesAreTruncated() {
+        // when
+        LogTester.log(LogTester.LogType.ERROR, "Test", createThrowable("first", "second", "third"));
+
+        // then
+        Assert.assertEquals("E/LogTester: Test\n"
+                + "java.lang.IllegalStateException\n"
+                + "\tat Test.first(Test.java:1)\n"
+                + "\tat Test.second(Test.java:1)\n"
+                + "\t... 1 frames truncated", writer.toString().trim());
+    }
+
+    @Test
+    public void commonFramesAreCollapsed() {
+        // when
+        LogTester.log(LogTester.LogType.ERROR, "First", createThrowable("first", "shared"));
+        writer.getBuffer().setLength(0);
+        LogTester.log(LogTester.LogType.ERROR, "Second", createThrowable("second", "shared"));
+
+        // then
+        Assert.assertEquals("E/LogTester: Second\n"
+                + "java.lang.IllegalStateException\n"
+                + "\tat Test.second(Test.java:1)\n"
+                + "\t... 1 frames in common with the previous stack trace",
+                writer.toString().trim());
+    }
+
+    @Test
+    public void identicalStackTracesAreOnlyRenderedOnce() {
+        // when
+        for (int i = 0; i < 3; i++) {
+            LogTester.log(LogTester.LogType.ERROR, "Retry " + i, createThrowable("retry"));
+        }
+
+        // then
+        Assert.assertEquals("E/LogTester: Retry 0\n"
+                + "java.lang.IllegalStateException\n"
+                + "\tat Test.retry(Test.java:1)\n\n"
+                + "E/LogTester: Retry 1\n"
+                + "java.lang.IllegalStateException\n"
+                + "\t... identical to a previous stack trace\n\n"
+                + "E/LogTester: Retry 2\n"
+                + "java.lang.IllegalStateException\n"
+                + "\t... identical to a previous stack trace", writer.toString().trim());
+    }
+
+    private static Throwable createThrowable(String... methods) {
+        StackTraceElement[] frames = new StackTraceElement[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            frames[i] = new StackTraceElement("Test", methods[i], "Test.java", 1);
+        }
+        Throwable throwable = new IllegalStateException();
+        throwable.setStackTrace(frames);
+        return throwable;
+    }
+}
@@ -0,0 +1,68 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.LogPriority;
+import net.lachlanmckee.timberjunit.LogRecords;
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import timber.log.Timber;
+
+import static org.junit.Assert.assertEquals;
+
+public class LogTestWithTagMinPriorities {
+
+    @Rule
+    public TimberTestRule timberTestRule = TimberTestRule.builder()
+            .minPriority(LogPriority.WARN)
+            .tagMinPriority("Noisy", LogPriority.ERROR)
+            .tagMinPriority("Verbose", LogPriority.VERBOSE)
+            .tagMinPriority("LogTester", LogPriority.INFO)
+            .build();
+
+    @Test
+    public void explicitTagsUseTheirMinPriority() {
+        // when
+        Timber.tag("Noisy").w("Dropped");
+        Timber.tag("Noisy").e("Noisy error");
+        Timber.tag("Verbose").v("Verbose message");
+        Timber.tag("Other").i("Dropped");
+        Timber.tag("Other").w("Other warning");
+
+        // then
+        LogRecords records = timberTestRule.logs().assertCount(3);
+        assertEquals("E/Noisy: Noisy error", records.get(0).toString());
+        assertEquals("V/Verbose: Verbose message", records.get(1).toString());
+        assertEquals("W/Other: Other warning", records.get(2).toString());
+    }
+
+    @Test
+    public void inferredTagsUseTheirMinPriority() {
+        // when
+        LogTester.log(LogTester.LogType.DEBUG, "Dropped");
+        LogTester.log(LogTester.LogType.INFO, "Info message");
+
+        // then
+        LogRecords records = timberTestRule.logs().assertCount(1);
+        assertEquals("I/LogTester: Info message", records.get(0).toString());
+    }
+
+    @Test
+    public void rejectedLogsAreNotFormatted() {
+        // given
+        Object unformattable = new Object() {
+            @Override
+            public String toString() {
+                throw new AssertionError("The rejected log was formatted");
+            }
+        };
+
+        // when
+        Timber.tag("Noisy").w("%s", unformattable);
+        Timber.tag("Other").d(new IllegalStateException(), "%s", unformattable);
+
+        // then
+        timberTestRule.logs().assertEmpty();
+    }
+}
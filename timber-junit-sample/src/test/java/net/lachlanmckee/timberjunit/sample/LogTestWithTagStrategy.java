@@ -0,0 +1,62 @@
+package net.lachlanmckee.timberjunit.sample;
+
+import net.lachlanmckee.timberjunit.TimberTestRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+
+import timber.log.Timber;
+
+@RunWith(Parameterized.class)
+public class LogTestWithTagStrategy {
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{
+                {TimberTestRule.TagStrategy.STACK_TRACE, null, "E/LogTester: Test"},
+                {TimberTestRule.TagStrategy.STACK_TRACE, "Explicit", "E/Explicit: Test"},
+                {TimberTestRule.TagStrategy.EXPLICIT_ONLY, null, "E/: Test"},
+                {TimberTestRule.TagStrategy.EXPLICIT_ONLY, "Explicit", "E/Explicit: Test"},
+        });
+    }
+
+    @Rule
+    public TimberTestRule mTimberTestRule;
+
+    private final String mExplicitTag;
+    private final String mExpectedOutput;
+
+    public LogTestWithTagStrategy(TimberTestRule.TagStrategy tagStrategy, String explicitTag,
+                                  String expectedOutput) {
+        mTimberTestRule = TimberTestRule.builder()
+                .showThread(false)
+                .showTimestamp(false)
+                .onlyLogWhenTestFails(false)
+                .tagStrategy(tagStrategy)
+                .build();
+
+        mExplicitTag = explicitTag;
+        mExpectedOutput = expectedOutput;
+    }
+
+    @Test
+    public void givenOutputStreamSetup_whenLogExecuted_thenVerifyExpectedOutput() {
+        // given
+        OutputStream outputStream = LogTesterTestUtils.setupConsoleOutputStream();
+
+        // when
+        if (mExplicitTag != null) {
+            Timber.tag(mExplicitTag);
+        }
+        LogTester.log(LogTester.LogType.ERROR, "Test");
+
+        // then
+        LogTesterTestUtils.assertOutput(outputStream, mExpectedOutput);
+    }
+}
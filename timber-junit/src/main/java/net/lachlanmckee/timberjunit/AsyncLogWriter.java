@@ -0,0 +1,311 @@
+package net.lachlanmckee.timberjunit;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Formats and writes logs on a single shared daemon thread, so that logging threads do not block
+ * on I/O.
+ * <p>
+ * Each test logs into its own bounded {@link Mailbox}. A mailbox with pending logs is scheduled on
+ * the writer thread, which formats its logs in batches and writes each batch in one call. The logs
+ * of a mailbox are always written in the order they were enqueued.
+ */
+final class AsyncLogWriter {
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    private static final BlockingQueue<Mailbox> READY_MAILBOXES = new LinkedBlockingQueue<>();
+    private static boolean sWriterStarted;
+
+    private AsyncLogWriter() {
+    }
+
+    /**
+     * Creates a mailbox whose logs are written on the writer thread.
+     *
+     * @param target   formats and writes the logs.
+     * @param capacity the maximum number of logs waiting to be written.
+     * @return a new mailbox.
+     */
+    static Mailbox createMailbox(Target target, int capacity) {
+        startWriter();
+        return new Mailbox(target, capacity);
+    }
+
+    private static synchronized void startWriter() {
+        if (sWriterStarted) {
+            return;
+        }
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        try {
+                            READY_MAILBOXES.take().writePendingLogs();
+
+                        } catch (InterruptedException e) {
+                            // The writer runs for the lifetime of the process.
+                            Thread.interrupted();
+                        }
+                    }
+                } finally {
+                    writerStopped();
+                }
+            }
+        }, "TimberTestRule-AsyncLogWriter");
+        writer.setDaemon(true);
+        writer.start();
+        sWriterStarted = true;
+    }
+
+    /**
+     * Replaces a writer thread that stopped unexpectedly, so that scheduled mailboxes are still
+     * written and their drain requests released.
+     */
+    private static synchronized void writerStopped() {
+        sWriterStarted = false;
+        startWriter();
+    }
+
+    /**
+     * Formats and writes the logs of a mailbox.
+     */
+    interface Target {
+        /**
+         * Appends a formatted log, including its line separator.
+         */
+        void appendLog(StringBuilder builder, int priority, String tag, String message,
+                       Throwable throwable, long timestamp, long nanoTime, long threadId,
+                       String threadName);
+
+        /**
+         * Writes formatted logs.
+         */
+        void write(CharSequence text) throws IOException;
+    }
+
+    /**
+     * The logs of a single test, waiting to be written.
+     */
+    static final class Mailbox {
+        private final Target mTarget;
+        private final BlockingQueue<Object> mQueue;
+        private final AtomicBoolean mScheduled = new AtomicBoolean();
+        private final List<Object> mBatch = new ArrayList<>();
+        private final StringBuilder mBuilder = new StringBuilder();
+        private volatile Throwable mWriteFailure;
+
+        private Mailbox(Target target, int capacity) {
+            mTarget = target;
+            mQueue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /**
+         * Enqueues a log to be written.
+         *
+         * @param block whether to wait for space when the mailbox is full.
+         * @return false if the log was dropped because the mailbox was full.
+         */
+        boolean enqueue(int priority, String tag, String message, Throwable throwable,
+                        long timestamp, long nanoTime, long threadId, String threadName,
+                        boolean block) {
+
+            PendingLog log = new PendingLog(priority, tag, message, throwable, timestamp, nanoTime,
+                    threadId, threadName);
+
+            if (block) {
+                putUninterruptibly(log);
+
+            } else if (!mQueue.offer(log)) {
+                return false;
+            }
+
+            schedule();
+            return true;
+        }
+
+        /**
+         * Waits until every previously enqueued log has been written.
+         *
+         * @throws IOException if any log could not be written.
+         * @throws Error        if the target threw an error while formatting or writing a log.
+         */
+        void drain() throws IOException {
+            CountDownLatch drained = new CountDownLatch(1);
+            putUninterruptibly(drained);
+            schedule();
+            awaitUninterruptibly(drained);
+
+            Throwable writeFailure = mWriteFailure;
+            if (writeFailure != null) {
+                mWriteFailure = null;
+                if (writeFailure instanceof Error) {
+                    throw (Error) writeFailure;
+                }
+                throw (IOException) writeFailure;
+            }
+        }
+
+        /**
+         * Enqueues a log or drain request, waiting for space only when the mailbox is full.
+         * Interrupts do not abandon the wait, as code under test commonly logs after restoring
+         * the interrupt status of its thread. The interrupt status is restored afterwards.
+         */
+        private void putUninterruptibly(Object entry) {
+            if (mQueue.offer(entry)) {
+                return;
+            }
+
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        mQueue.put(entry);
+                        return;
+
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private static void awaitUninterruptibly(CountDownLatch latch) {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        latch.await();
+                        return;
+
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void schedule() {
+            if (!mScheduled.get() && mScheduled.compareAndSet(false, true)) {
+                READY_MAILBOXES.add(this);
+            }
+        }
+
+        /**
+         * Writes a batch of pending logs. This is only called by the writer thread.
+         * <p>
+         * Every failure is recorded rather than thrown, as the writer thread is shared by every
+         * mailbox. Drain requests are always released, even if the batch is not fully written.
+         */
+        private void writePendingLogs() {
+            mQueue.drainTo(mBatch, MAX_BATCH_SIZE);
+            try {
+                for (Object entry : mBatch) {
+                    if (entry instanceof PendingLog) {
+                        PendingLog log = (PendingLog) entry;
+                        try {
+                            mTarget.appendLog(mBuilder, log.mPriority, log.mTag, log.mMessage,
+                                    log.mThrowable, log.mTimestamp, log.mNanoTime, log.mThreadId,
+                                    log.mThreadName);
+
+                        } catch (Throwable t) {
+                            recordFailure("Unable to format log", t);
+                        }
+
+                    } else {
+                        // A drain request, only released once the earlier logs are written.
+                        write();
+                        ((CountDownLatch) entry).countDown();
+                    }
+                }
+                write();
+
+            } finally {
+                for (Object entry : mBatch) {
+                    if (entry instanceof CountDownLatch) {
+                        ((CountDownLatch) entry).countDown();
+                    }
+                }
+                mBatch.clear();
+                mBuilder.setLength(0);
+
+                // Logs enqueued while this mailbox was being written must not be missed.
+                mScheduled.set(false);
+                if (!mQueue.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+
+        private void write() {
+            if (mBuilder.length() == 0) {
+                return;
+            }
+            try {
+                mTarget.write(mBuilder);
+
+            } catch (Throwable t) {
+                recordFailure("Unable to write logs", t);
+            }
+            mBuilder.setLength(0);
+        }
+
+        /**
+         * Keeps the first failure, which is thrown by the next {@link #drain()}. Errors are kept
+         * as they are, and any other exception is reported as an {@link IOException}.
+         */
+        private void recordFailure(String message, Throwable failure) {
+            if (mWriteFailure != null) {
+                return;
+            }
+            if (failure instanceof Error || failure instanceof IOException) {
+                mWriteFailure = failure;
+            } else {
+                mWriteFailure = new IOException(message, failure);
+            }
+        }
+    }
+
+    /**
+     * A log waiting to be written.
+     */
+    private static final class PendingLog {
+        private final int mPriority;
+        private final String mTag;
+        private final String mMessage;
+        private final Throwable mThrowable;
+        private final long mTimestamp;
+        private final long mNanoTime;
+        private final long mThreadId;
+        private final String mThreadName;
+
+        PendingLog(int priority, String tag, String message, Throwable throwable, long timestamp,
+                   long nanoTime, long threadId, String threadName) {
+            mPriority = priority;
+            mTag = tag;
+            mMessage = message;
+            mThrowable = throwable;
+            mTimestamp = timestamp;
+            mNanoTime = nanoTime;
+            mThreadId = threadId;
+            mThreadName = threadName;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package net.lachlanmckee.timberjunit;
+
+import java.io.IOException;
+
+/**
+ * Buffers log records within a maximum number of records and bytes, discarding records as
+ * defined by a {@link TimberTestRule.OverflowPolicy} once a limit is reached.
+ * <p>
+ * The first records are kept in a head buffer which is never evicted, and the remaining records
+ * are kept in a tail buffer whose oldest records are evicted to make room for new records. This
+ * keeps every append constant time, as records are only ever removed from the start of the tail.
+ * <p>
+ * When a retention window is defined, the records of the tail which are older than the window
+ * are also evicted as records are added. The tail is ordered by time, so this only needs to check
+ * its oldest records, and each record is evicted at most once.
+ * <p>
+ * When records have been discarded, a single marker is visited between the head and the tail.
+ * <p>
+ * This class is not thread-safe, callers are responsible for synchronization.
+ */
+final class BoundedLogRecordBuffer {
+    private final LogRecordBuffer mHead;
+    private final LogRecordBuffer mTail;
+
+    private final int mMaxHeadRecords;
+    private final long mMaxHeadBytes;
+    private final int mMaxTailRecords;
+    private final long mMaxTailBytes;
+    private final long mRetentionMillis;
+
+    private boolean mHeadFull;
+    private int mDiscardedCount;
+    private int mPeakSize;
+
+    /**
+     * @param maxRecords      the maximum number of records kept.
+     * @param maxBytes        the maximum estimated number of bytes kept.
+     * @param policy          defines which records are kept when a limit is reached.
+     * @param retentionMillis the age in milliseconds after which records of the tail are evicted.
+     * @param initialCapacity the number of records the buffer can hold before it must grow.
+     */
+    BoundedLogRecordBuffer(int maxRecords, long maxBytes, TimberTestRule.OverflowPolicy policy,
+                           long retentionMillis, int initialCapacity) {
+        mRetentionMillis = retentionMillis;
+
+        switch (policy) {
+            case KEEP_FIRST:
+                mMaxHeadRecords = maxRecords;
+                mMaxHeadBytes = maxBytes;
+                mMaxTailRecords = 0;
+                mMaxTailBytes = 0;
+                break;
+
+            case KEEP_FIRST_AND_LAST:
+                mMaxHeadRecords = maxRecords / 2;
+                mMaxHeadBytes = maxBytes / 2;
+                mMaxTailRecords = maxRecords - mMaxHeadRecords;
+                mMaxTailBytes = maxBytes - mMaxHeadBytes;
+                break;
+
+            case KEEP_LAST:
+            default:
+                mMaxHeadRecords = 0;
+                mMaxHeadBytes = 0;
+                mMaxTailRecords = maxRecords;
+                mMaxTailBytes = maxBytes;
+                break;
+        }
+
+        // Records are only kept in the head until it is full, so it never needs to grow beyond it.
+        mHead = new LogRecordBuffer(Math.min(initialCapacity, mMaxHeadRecords));
+        mTail = new LogRecordBuffer(Math.min(initialCapacity, mMaxTailRecords));
+    }
+
+    void add(int priority, String tag, String message, Throwable throwable, long timestamp,
+             long nanoTime, long threadId, String threadName) {
+
+        long bytes = LogRecordBuffer.estimateBytes(tag, message);
+
+        if (!mHeadFull) {
+            if (mHead.size() < mMaxHeadRecords && mHead.bytes() + bytes <= mMaxHeadBytes) {
+                mHead.add(priority, tag, message, throwable, timestamp, nanoTime, threadId,
+                        threadName);
+                updatePeakSize();
+                return;
+            }
+            // Once a record has not fit, the head is closed so that the records stay in order.
+            mHeadFull = true;
+        }
+
+        if (mMaxTailRecords == 0 || bytes > mMaxTailBytes) {
+            mDiscardedCount++;
+            return;
+        }
+
+        evictBefore(timestamp - mRetentionMillis);
+        while (mTail.size() >= mMaxTailRecords || mTail.bytes() + bytes > mMaxTailBytes) {
+            mTail.removeFirst();
+            mDiscardedCount++;
+        }
+        mTail.add(priority, tag, message, throwable, timestamp, nanoTime, threadId, threadName);
+        updatePeakSize();
+    }
+
+    /**
+     * Discards the records of the tail which were created before the timestamp.
+     */
+    void evictBefore(long minTimestamp) {
+        while (mTail.size() > 0 && mTail.timestampAt(0) < minTimestamp) {
+            mTail.removeFirst();
+            mDiscardedCount++;
+        }
+    }
+
+    private void updatePeakSize() {
+        int size = mHead.size() + mTail.size();
+        if (size > mPeakSize) {
+            mPeakSize = size;
+        }
+    }
+
+    /**
+     * @return the largest number of records held at once since the buffer was last cleared.
+     */
+    int peakSize() {
+        return mPeakSize;
+    }
+
+    /**
+     * @return the number of records the buffer can hold before it must grow.
+     */
+    int capacity() {
+        return mHead.capacity() + mTail.capacity();
+    }
+
+    /**
+     * @return the number of entries to visit, which includes the discarded records marker.
+     */
+    int size() {
+        return mHead.size() + (mDiscardedCount > 0 ? 1 : 0) + mTail.size();
+    }
+
+    /**
+     * @return whether the entry at the index is the marker for the discarded records.
+     */
+    boolean isDiscardedMarker(int index) {
+        return mDiscardedCount > 0 && index == mHead.size();
+    }
+
+    /**
+     * @return the number of records that were discarded.
+     */
+    int discardedCount() {
+        return mDiscardedCount;
+    }
+
+    /**
+     * Appends a copy of every record to the target, in the order they were logged.
+     *
+     * @param target the buffer receiving the records.
+     * @return the index within the copied records of the record that follows the discarded
+     * records marker.
+     */
+    int copyTo(LogRecordBuffer target) {
+        copy(mHead, target);
+        copy(mTail, target);
+        return mHead.size();
+    }
+
+    private static void copy(LogRecordBuffer source, LogRecordBuffer target) {
+        for (int i = 0, size = source.size(); i < size; i++) {
+            target.add(source.priorityAt(i), source.tagAt(i), source.messageAt(i),
+                    source.throwableAt(i), source.timestampAt(i), source.nanoTimeAt(i),
+                    source.threadIdAt(i), source.threadNameAt(i));
+        }
+    }
+
+    /**
+     * Visits the entry at the index, which is either a record or the discarded records marker.
+     */
+    void visit(int index, LogRecordStore.Visitor visitor) throws IOException {
+        int headSize = mHead.size();
+        if (index < headSize) {
+            visitor.visit(mHead, index);
+
+        } else if (isDiscardedMarker(index)) {
+            visitor.visitDiscarded(mDiscardedCount);
+
+        } else {
+            visitor.visit(mTail, tailIndex(index, headSize));
+        }
+    }
+
+    /**
+     * Removes all records in constant time.
+     */
+    void clear() {
+        mHead.clear();
+        mTail.clear();
+        mHeadFull = false;
+        mDiscardedCount = 0;
+        mPeakSize = 0;
+    }
+
+    private int tailIndex(int index, int headSize) {
+        return index - headSize - (mDiscardedCount > 0 ? 1 : 0);
+    }
+}
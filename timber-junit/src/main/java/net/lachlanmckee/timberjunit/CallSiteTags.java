@@ -0,0 +1,86 @@
+package net.lachlanmckee.timberjunit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Infers log tags from the class that called Timber, in the same way as
+ * {@link timber.log.Timber.DebugTree}.
+ */
+final class CallSiteTags {
+    private static final int MAX_TAG_LENGTH = 23;
+    private static final Pattern ANONYMOUS_CLASS = Pattern.compile("(\\$\\d+)+$");
+
+    private static final String TIMBER_CLASS_PREFIX = "timber.log.Timber";
+    private static final String LIBRARY_PACKAGE = CallSiteTags.class.getName()
+            .substring(0, CallSiteTags.class.getName().lastIndexOf('.'));
+
+    /**
+     * Tags keyed by class name. Names are used rather than classes, so that class loaders are not
+     * retained by the cache.
+     */
+    private static final ConcurrentMap<String, String> TAG_CACHE = new ConcurrentHashMap<>();
+
+    private CallSiteTags() {
+    }
+
+    /**
+     * Infers the tag by walking the stack trace of the current thread. The tag of each class is
+     * only created once.
+     *
+     * @return the tag of the calling class.
+     */
+    static String fromStackTrace() {
+        String className = callerClassName();
+        if (className == null) {
+            return null;
+        }
+
+        String tag = TAG_CACHE.get(className);
+        if (tag == null) {
+            tag = createTag(className);
+            TAG_CACHE.put(className, tag);
+        }
+        return tag;
+    }
+
+    /**
+     * Finds the class that called Timber by walking the stack trace of the current thread.
+     *
+     * @return the name of the calling class.
+     */
+    static String callerClassName() {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            String className = element.getClassName();
+            if (!isIgnored(className)) {
+                return className;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether the class belongs to Timber or this library, rather than the code that
+     * logged.
+     */
+    private static boolean isIgnored(String className) {
+        return className.startsWith(TIMBER_CLASS_PREFIX)
+                || (className.startsWith(LIBRARY_PACKAGE)
+                && className.lastIndexOf('.') == LIBRARY_PACKAGE.length());
+    }
+
+    /**
+     * Creates a tag from a class name, matching {@link timber.log.Timber.DebugTree}.
+     */
+    private static String createTag(String className) {
+        String tag = className;
+        Matcher m = ANONYMOUS_CLASS.matcher(tag);
+        if (m.find()) {
+            tag = m.replaceAll("");
+        }
+        tag = tag.substring(tag.lastIndexOf('.') + 1);
+        return tag.length() > MAX_TAG_LENGTH ? tag.substring(0, MAX_TAG_LENGTH) : tag;
+    }
+}
@@ -0,0 +1,82 @@
+package net.lachlanmckee.timberjunit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The counters of the work performed by a tree while capturing logs, which are summarised as
+ * {@link CaptureMetrics}.
+ * <p>
+ * Logs may be created by many threads at once, so each counter is striped across several cells
+ * chosen by the id of the updating thread, and the cells are summed when the counters are read.
+ * Each stripe is padded so that the cells of neighbouring stripes never share a cache line, so
+ * threads updating different stripes do not contend.
+ */
+final class CaptureCounters {
+    static final int CAPTURED = 0;
+    static final int REJECTED = 1;
+    static final int BUFFERED_BYTES = 2;
+    static final int FORMAT_NANOS = 3;
+    static final int FLUSH_NANOS = 4;
+    static final int LOG_NANOS = 5;
+    private static final int COUNTER_COUNT = 6;
+
+    /**
+     * The number of cells of each stripe, which is two cache lines of longs. The array data does
+     * not start on a cache line boundary, so a single cache line per stripe would share a line
+     * with its neighbour. The padding between the counters of neighbouring stripes is always
+     * larger than a cache line.
+     */
+    private static final int STRIPE_LENGTH = 16;
+    private static final int MAX_STRIPES = 64;
+
+    private final AtomicLongArray mCells;
+    private final int mStripeMask;
+
+    CaptureCounters() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int stripes = Integer.highestOneBit(Math.min(Math.max(processors, 1), MAX_STRIPES));
+        if (stripes < processors && stripes < MAX_STRIPES) {
+            stripes <<= 1;
+        }
+        mStripeMask = stripes - 1;
+        mCells = new AtomicLongArray(stripes * STRIPE_LENGTH);
+    }
+
+    /**
+     * @param counter the counter, such as {@link #CAPTURED}.
+     * @param delta   the amount added to the counter.
+     */
+    void add(int counter, long delta) {
+        int stripe = (int) Thread.currentThread().getId() & mStripeMask;
+        mCells.getAndAdd(stripe * STRIPE_LENGTH + counter, delta);
+    }
+
+    /**
+     * @param counter the counter, such as {@link #CAPTURED}.
+     * @return the current value of the counter.
+     */
+    long sum(int counter) {
+        long sum = 0;
+        for (int stripe = 0; stripe <= mStripeMask; stripe++) {
+            sum += mCells.get(stripe * STRIPE_LENGTH + counter);
+        }
+        return sum;
+    }
+
+    /**
+     * Reads and resets every counter. Updates made concurrently are included in either this or
+     * the following snapshot, so none are lost.
+     *
+     * @return the metrics counted since the previous snapshot.
+     */
+    CaptureMetrics snapshotAndReset() {
+        long[] totals = new long[COUNTER_COUNT];
+        for (int stripe = 0; stripe <= mStripeMask; stripe++) {
+            for (int counter = 0; counter < totals.length; counter++) {
+                totals[counter] += mCells.getAndSet(stripe * STRIPE_LENGTH + counter, 0);
+            }
+        }
+        return new CaptureMetrics(totals[CAPTURED], totals[REJECTED], totals[BUFFERED_BYTES],
+                totals[FORMAT_NANOS], totals[FLUSH_NANOS], totals[LOG_NANOS]);
+    }
+}
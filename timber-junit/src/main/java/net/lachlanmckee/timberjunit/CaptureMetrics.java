@@ -0,0 +1,97 @@
+package net.lachlanmckee.timberjunit;
+
+import java.util.Locale;
+
+/**
+ * The work performed by a {@link TimberTestRule} while capturing the logs of a test or test class,
+ * which shows how much the rule, and the logging of the code under test, adds to its runtime.
+ *
+ * @see TimberTestRule.Listener
+ */
+public final class CaptureMetrics {
+    static final CaptureMetrics NONE = new CaptureMetrics(0, 0, 0, 0, 0, 0);
+
+    private final long mCapturedCount;
+    private final long mRejectedCount;
+    private final long mBufferedBytes;
+    private final long mFormatNanos;
+    private final long mFlushNanos;
+    private final long mLogNanos;
+
+    CaptureMetrics(long capturedCount, long rejectedCount, long bufferedBytes, long formatNanos,
+                   long flushNanos, long logNanos) {
+        mCapturedCount = capturedCount;
+        mRejectedCount = rejectedCount;
+        mBufferedBytes = bufferedBytes;
+        mFormatNanos = formatNanos;
+        mFlushNanos = flushNanos;
+        mLogNanos = logNanos;
+    }
+
+    /**
+     * @return the number of logs which were captured.
+     */
+    public long getCapturedCount() {
+        return mCapturedCount;
+    }
+
+    /**
+     * @return the number of logs which were rejected due to their priority.
+     */
+    public long getRejectedCount() {
+        return mRejectedCount;
+    }
+
+    /**
+     * @return the estimated number of bytes of the tags and messages of the buffered logs,
+     * including any logs which were later discarded.
+     */
+    public long getBufferedBytes() {
+        return mBufferedBytes;
+    }
+
+    /**
+     * @return the time spent formatting logs, in nanoseconds.
+     */
+    public long getFormatNanos() {
+        return mFormatNanos;
+    }
+
+    /**
+     * @return the time spent writing formatted logs to the log sink or failure log files, in
+     * nanoseconds.
+     */
+    public long getFlushNanos() {
+        return mFlushNanos;
+    }
+
+    /**
+     * @return the time the logging threads spent handling logs, in nanoseconds. This includes
+     * inferring tags, and formatting and writing the logs which are written immediately, but not
+     * the time Timber spends formatting messages.
+     */
+    public long getLogNanos() {
+        return mLogNanos;
+    }
+
+    /**
+     * @return the metrics of both this and the other metrics combined.
+     */
+    CaptureMetrics plus(CaptureMetrics other) {
+        return new CaptureMetrics(mCapturedCount + other.mCapturedCount,
+                mRejectedCount + other.mRejectedCount,
+                mBufferedBytes + other.mBufferedBytes,
+                mFormatNanos + other.mFormatNanos,
+                mFlushNanos + other.mFlushNanos,
+                mLogNanos + other.mLogNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "%d captured, %d rejected, %d bytes buffered, %.3f ms logging, "
+                        + "%.3f ms formatting, %.3f ms flushing",
+                mCapturedCount, mRejectedCount, mBufferedBytes, mLogNanos / 1e6,
+                mFormatNanos / 1e6, mFlushNanos / 1e6);
+    }
+}
@@ -0,0 +1,197 @@
+package net.lachlanmckee.timberjunit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import timber.log.Timber;
+
+/**
+ * A Timber tree which receives the throwable of each log separately from its message, rather than
+ * having Timber render the stack trace into the message.
+ * <p>
+ * Timber renders the stack trace of every throwable before the tree receives the log, which is
+ * wasteful when the log is buffered and then discarded. This tree passes each throwable to Timber
+ * through a thread local rather than as an argument, so that Timber still handles the tag and
+ * message formatting, but the stack trace is only rendered if the log is written.
+ * <p>
+ * Formatting the message of a log may itself log, such as from the {@code toString()} of an
+ * argument. The pending throwable is hidden from any such nested log, so that it is only received
+ * by the log it belongs to.
+ */
+abstract class DeferredThrowableTree extends Timber.Tree {
+    /**
+     * Passed to Timber in place of a missing message, as Timber ignores logs without a message.
+     */
+    private static final String THROWABLE_ONLY_MESSAGE = new String("throwable");
+
+    private static final Object[] NO_ARGS = new Object[0];
+    private static final ThreadLocal<Throwable> PENDING_THROWABLE = new ThreadLocal<>();
+
+    /**
+     * The number of throwables pending across every thread, so that logs without a throwable only
+     * read the thread local while a throwable may be pending.
+     */
+    private static final AtomicInteger PENDING_COUNT = new AtomicInteger();
+
+    @Override
+    public void v(String message, Object... args) {
+        logDeferred(LogPriority.VERBOSE, null, message, args);
+    }
+
+    @Override
+    public void v(Throwable t, String message, Object... args) {
+        logDeferred(LogPriority.VERBOSE, t, message, args);
+    }
+
+    @Override
+    public void v(Throwable t) {
+        logDeferred(LogPriority.VERBOSE, t, null, NO_ARGS);
+    }
+
+    @Override
+    public void d(String message, Object... args) {
+        logDeferred(LogPriority.DEBUG, null, message, args);
+    }
+
+    @Override
+    public void d(Throwable t, String message, Object... args) {
+        logDeferred(LogPriority.DEBUG, t, message, args);
+    }
+
+    @Override
+    public void d(Throwable t) {
+        logDeferred(LogPriority.DEBUG, t, null, NO_ARGS);
+    }
+
+    @Override
+    public void i(String message, Object... args) {
+        logDeferred(LogPriority.INFO, null, message, args);
+    }
+
+    @Override
+    public void i(Throwable t, String message, Object... args) {
+        logDeferred(LogPriority.INFO, t, message, args);
+    }
+
+    @Override
+    public void i(Throwable t) {
+        logDeferred(LogPriority.INFO, t, null, NO_ARGS);
+    }
+
+    @Override
+    public void w(String message, Object... args) {
+        logDeferred(LogPriority.WARN, null, message, args);
+    }
+
+    @Override
+    public void w(Throwable t, String message, Object... args) {
+        logDeferred(LogPriority.WARN, t, message, args);
+    }
+
+    @Override
+    public void w(Throwable t) {
+        logDeferred(LogPriority.WARN, t, null, NO_ARGS);
+    }
+
+    @Override
+    public void e(String message, Object... args) {
+        logDeferred(LogPriority.ERROR, null, message, args);
+    }
+
+    @Override
+    public void e(Throwable t, String message, Object... args) {
+        logDeferred(LogPriority.ERROR, t, message, args);
+    }
+
+    @Override
+    public void e(Throwable t) {
+        logDeferred(LogPriority.ERROR, t, null, NO_ARGS);
+    }
+
+    @Override
+    public void wtf(String message, Object... args) {
+        logDeferred(LogPriority.ASSERT, null, message, args);
+    }
+
+    @Override
+    public void wtf(Throwable t, String message, Object... args) {
+        logDeferred(LogPriority.ASSERT, t, message, args);
+    }
+
+    @Override
+    public void wtf(Throwable t) {
+        logDeferred(LogPriority.ASSERT, t, null, NO_ARGS);
+    }
+
+    @Override
+    public void log(int priority, String message, Object... args) {
+        logDeferred(priority, null, message, args);
+    }
+
+    @Override
+    public void log(int priority, Throwable t, String message, Object... args) {
+        logDeferred(priority, t, message, args);
+    }
+
+    @Override
+    public void log(int priority, Throwable t) {
+        logDeferred(priority, t, null, NO_ARGS);
+    }
+
+    private void logDeferred(int priority, Throwable t, String message, Object[] args) {
+        if (t == null && PENDING_COUNT.get() == 0) {
+            super.log(priority, message, args);
+            return;
+        }
+        Throwable previous = PENDING_THROWABLE.get();
+        if (t == null && previous == null) {
+            super.log(priority, message, args);
+            return;
+        }
+
+        if (t != null && (message == null || message.length() == 0)) {
+            message = THROWABLE_ONLY_MESSAGE;
+            args = NO_ARGS;
+        }
+
+        // A log without a throwable clears the pending throwable of an enclosing log.
+        if (t != null) {
+            PENDING_COUNT.incrementAndGet();
+        }
+        PENDING_THROWABLE.set(t);
+        try {
+            super.log(priority, message, args);
+
+        } finally {
+            PENDING_THROWABLE.set(previous);
+            if (t != null) {
+                PENDING_COUNT.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    protected final void log(int priority, String tag, String message, Throwable t) {
+        Throwable pending = PENDING_THROWABLE.get();
+        if (pending != null) {
+            PENDING_THROWABLE.set(null);
+            t = pending;
+
+            // Identity is used, so that a real message with the same text is unaffected.
+            if (message == THROWABLE_ONLY_MESSAGE) {
+                message = null;
+            }
+        }
+        logRecord(priority, tag, message, t);
+    }
+
+    /**
+     * Receives a log which was accepted by Timber.
+     *
+     * @param priority the priority of the log.
+     * @param tag      the tag of the log.
+     * @param message  the formatted message, which does not contain the stack trace of the
+     *                 throwable. This is null if the log only contains a throwable.
+     * @param t        the throwable of the log, or null.
+     */
+    protected abstract void logRecord(int priority, String tag, String message, Throwable t);
+}
@@ -0,0 +1,127 @@
+package net.lachlanmckee.timberjunit;
+
+import org.junit.runner.Description;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the logs of each failed test to its own file, named from the {@link Description} of the
+ * test, rather than to a {@link LogSink}. This keeps large logs out of the console output, which
+ * build tools such as Gradle include in their test reports.
+ */
+final class FailureLogFiles {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_NAME_LENGTH = 200;
+
+    private FailureLogFiles() {
+    }
+
+    /**
+     * Writes the logs of a test to a file within the directory, replacing any previous file for
+     * the same test. The logs are written in chunks, and the file is only created once the first
+     * chunk is written.
+     */
+    static final class Output implements LogSink, Closeable {
+        private final File mDirectory;
+        private final Description mDescription;
+        private final boolean mGzip;
+
+        private File mFile;
+        private Writer mWriter;
+
+        /**
+         * @param directory   the directory of the file, which is created if required.
+         * @param description the description of the test, which is used to name the file.
+         * @param gzip        whether the file is compressed using gzip.
+         */
+        Output(File directory, Description description, boolean gzip) {
+            mDirectory = directory;
+            mDescription = description;
+            mGzip = gzip;
+        }
+
+        /**
+         * @return the file that was written, or null if nothing was written.
+         */
+        File getFile() {
+            return mFile;
+        }
+
+        @Override
+        public void write(CharSequence text) throws IOException {
+            if (mWriter == null) {
+                open();
+            }
+            mWriter.append(text);
+        }
+
+        private void open() throws IOException {
+            if (!mDirectory.isDirectory() && !mDirectory.mkdirs() && !mDirectory.isDirectory()) {
+                throw new IOException("Unable to create the directory: " + mDirectory);
+            }
+
+            File file = new File(mDirectory,
+                    fileName(mDescription) + (mGzip ? ".log.gz" : ".log"));
+            OutputStream outputStream = new FileOutputStream(file);
+            try {
+                outputStream = mGzip
+                        ? new GZIPOutputStream(outputStream, BUFFER_SIZE)
+                        : new BufferedOutputStream(outputStream, BUFFER_SIZE);
+
+            } catch (IOException e) {
+                outputStream.close();
+                throw e;
+            }
+
+            // Malformed and unmappable characters are replaced rather than failing the write.
+            mWriter = new OutputStreamWriter(outputStream, UTF_8);
+            mFile = file;
+        }
+
+        /**
+         * Closes the file, which finishes the gzip stream.
+         */
+        @Override
+        public void close() throws IOException {
+            if (mWriter != null) {
+                mWriter.close();
+            }
+        }
+    }
+
+    /**
+     * Creates a file name from the class and method name of the test, replacing any characters
+     * that are not safe to use within a file name.
+     */
+    private static String fileName(Description description) {
+        String name = description.getClassName();
+        if (description.getMethodName() != null) {
+            name += "." + description.getMethodName();
+        }
+
+        StringBuilder builder = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean safe = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+                    || (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '_' || c == '$';
+            builder.append(safe ? c : '_');
+        }
+
+        // Long names, such as those of parameterized tests, are shortened but kept unique.
+        if (builder.length() > MAX_NAME_LENGTH) {
+            builder.setLength(MAX_NAME_LENGTH);
+            builder.append('-').append(Integer.toHexString(name.hashCode()));
+        }
+        return builder.toString();
+    }
+}
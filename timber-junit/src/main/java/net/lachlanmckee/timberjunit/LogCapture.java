@@ -0,0 +1,71 @@
+package net.lachlanmckee.timberjunit;
+
+import org.junit.runner.Description;
+
+import java.io.IOException;
+
+/**
+ * The capture of the logs of a single test, for test frameworks which cannot apply a
+ * {@link TimberTestRule}, such as JUnit 5. A capture is started by
+ * {@link TimberTestRule#startCapture(Description)} before the test executes, and must be finished
+ * by {@link #finish(Throwable)} on the same thread once the test has completed.
+ */
+public final class LogCapture {
+    private final TimberTestRule mRule;
+    private final TimberTestRule.BufferedJUnitTimberTree mTree;
+    private final Description mDescription;
+
+    private volatile boolean mFinished;
+
+    LogCapture(TimberTestRule rule, TimberTestRule.BufferedJUnitTimberTree tree,
+               Description description) {
+        mRule = rule;
+        mTree = tree;
+        mDescription = description;
+    }
+
+    /**
+     * Returns the logs captured by the test so far, which can be queried and asserted upon.
+     *
+     * @return an immutable snapshot of the captured logs.
+     * @throws IllegalStateException if the capture has finished, logs are not captured, or the
+     *                               logs spilled to disk could not be read.
+     * @see TimberTestRule#logs()
+     */
+    public LogRecords logs() {
+        return mRule.logs(mFinished ? null : mTree);
+    }
+
+    /**
+     * Finishes the capture and uproots its tree. The logs are written if the test failed, or if
+     * it exceeded the budgets of the rule.
+     *
+     * @param failure the failure of the test, or null if it passed.
+     * @throws AssertionError        if the test passed but exceeded the budgets of the rule,
+     *                               and {@link TimberTestRule.BudgetAction#FAIL} is used.
+     * @throws IOException           if the logs could not be written.
+     * @throws IllegalStateException if the capture has already finished.
+     */
+    public void finish(Throwable failure) throws IOException {
+        if (mFinished) {
+            throw new IllegalStateException("The capture has already finished");
+        }
+        mFinished = true;
+
+        try {
+            if (failure != null) {
+                mTree.flushFailedTestLogs(mDescription);
+
+            } else {
+                AssertionError budgetFailure = mRule.checkBudgets(mTree, mDescription);
+                if (budgetFailure != null) {
+                    mTree.flushFailedTestLogs(mDescription);
+                    throw budgetFailure;
+                }
+            }
+
+        } finally {
+            mRule.finishCapture(mTree, mDescription, false);
+        }
+    }
+}
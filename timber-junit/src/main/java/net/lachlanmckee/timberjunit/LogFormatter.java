@@ -0,0 +1,225 @@
+package net.lachlanmckee.timberjunit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formats log messages using a layout pattern which is parsed once, when the rule is built.
+ * <p>
+ * The pattern is compiled into a flat list of operations, so formatting a log does not re-evaluate
+ * the rules or parse the pattern. The pattern supports the following placeholders:
+ * <ul>
+ * <li>{@code %time} - The timestamp of the log.</li>
+ * <li>{@code %thread} - The thread id and name, separated by a slash.</li>
+ * <li>{@code %level} - The single letter priority of the log.</li>
+ * <li>{@code %tag} - The tag of the log.</li>
+ * <li>{@code %msg} - The message of the log.</li>
+ * <li>{@code %%} - A percent sign.</li>
+ * </ul>
+ * Any other text is output as is.
+ */
+final class LogFormatter {
+    private static final int OP_LITERAL = 0;
+    private static final int OP_TIME = 1;
+    private static final int OP_THREAD = 2;
+    private static final int OP_LEVEL = 3;
+    private static final int OP_TAG = 4;
+    private static final int OP_MESSAGE = 5;
+
+    private static final String[] PLACEHOLDERS = {null, "time", "thread", "level", "tag", "msg"};
+
+    private final int[] mOps;
+    private final String[] mLiterals;
+    private final boolean mShowsTimestamp;
+    private final int mFixedLength;
+
+    private LogFormatter(int[] ops, String[] literals) {
+        mOps = ops;
+        mLiterals = literals;
+
+        boolean showsTimestamp = false;
+        int fixedLength = 0;
+        for (int i = 0; i < ops.length; i++) {
+            switch (ops[i]) {
+                case OP_LITERAL:
+                    fixedLength += literals[i].length();
+                    break;
+
+                case OP_TIME:
+                    showsTimestamp = true;
+                    fixedLength += 16;
+                    break;
+
+                case OP_THREAD:
+                    fixedLength += 24;
+                    break;
+
+                default:
+                    fixedLength += 1;
+                    break;
+            }
+        }
+        mShowsTimestamp = showsTimestamp;
+        mFixedLength = fixedLength;
+    }
+
+    /**
+     * Compiles the layout defined by the rules.
+     *
+     * @param pattern       the pattern to compile, or null to create the default layout.
+     * @param showTimestamp whether the default layout shows the timestamp.
+     * @param showThread    whether the default layout shows the thread.
+     * @return the compiled formatter.
+     * @throws IllegalArgumentException if the pattern contains an unknown placeholder.
+     */
+    static LogFormatter compile(String pattern, boolean showTimestamp, boolean showThread) {
+        if (pattern == null) {
+            pattern = (showTimestamp ? "%time " : "")
+                    + (showThread ? "%thread " : "")
+                    + "%level/%tag: %msg";
+        }
+
+        List<Integer> ops = new ArrayList<>();
+        List<String> literals = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        int index = 0;
+        while (index < pattern.length()) {
+            char c = pattern.charAt(index);
+            if (c != '%') {
+                literal.append(c);
+                index++;
+                continue;
+            }
+
+            if (pattern.startsWith("%", index + 1)) {
+                literal.append('%');
+                index += 2;
+                continue;
+            }
+
+            int placeholderEnd = index + 1;
+            while (placeholderEnd < pattern.length()
+                    && Character.isLetter(pattern.charAt(placeholderEnd))) {
+                placeholderEnd++;
+            }
+            int op = placeholderOp(pattern.substring(index + 1, placeholderEnd));
+            if (op == OP_LITERAL) {
+                throw new IllegalArgumentException("Unknown placeholder '"
+                        + pattern.substring(index, placeholderEnd) + "' in pattern: " + pattern);
+            }
+
+            if (literal.length() > 0) {
+                ops.add(OP_LITERAL);
+                literals.add(literal.toString());
+                literal.setLength(0);
+            }
+            ops.add(op);
+            literals.add(null);
+            index = placeholderEnd;
+        }
+
+        if (literal.length() > 0) {
+            ops.add(OP_LITERAL);
+            literals.add(literal.toString());
+        }
+
+        int[] opArray = new int[ops.size()];
+        for (int i = 0; i < opArray.length; i++) {
+            opArray[i] = ops.get(i);
+        }
+        return new LogFormatter(opArray, literals.toArray(new String[literals.size()]));
+    }
+
+    private static int placeholderOp(String name) {
+        for (int op = OP_LITERAL + 1; op < PLACEHOLDERS.length; op++) {
+            if (PLACEHOLDERS[op].equals(name)) {
+                return op;
+            }
+        }
+        return OP_LITERAL;
+    }
+
+    /**
+     * @return whether the timestamp is shown, and therefore must be captured.
+     */
+    boolean showsTimestamp() {
+        return mShowsTimestamp;
+    }
+
+    /**
+     * Estimates the length of a formatted log, which is used to presize builders.
+     */
+    int estimateLength(String tag, String message) {
+        return mFixedLength
+                + (tag != null ? tag.length() : 4)
+                + (message != null ? message.length() : 4);
+    }
+
+    /**
+     * Appends a formatted log message.
+     *
+     * @param builder            the builder the message is appended to.
+     * @param timestampFormatter the formatter used for the timestamp.
+     * @param priority           the priority of the log.
+     * @param tag                the tag of the log.
+     * @param message            the message of the log, or null.
+     * @param throwable          the throwable of the log, or null.
+     * @param stackTraceRenderer the renderer used for the stack trace of the throwable.
+     * @param timestamp          the time the log was created, in milliseconds.
+     * @param nanoTime           the {@link System#nanoTime()} when the log was created.
+     * @param threadId           the id of the thread that created the log.
+     * @param threadName         the name of the thread that created the log.
+     */
+    void append(StringBuilder builder, TimestampFormatter timestampFormatter, int priority,
+                String tag, String message, Throwable throwable,
+                StackTraceRenderer stackTraceRenderer, long timestamp, long nanoTime,
+                long threadId, String threadName) {
+
+        int[] ops = mOps;
+        for (int i = 0; i < ops.length; i++) {
+            switch (ops[i]) {
+                case OP_LITERAL:
+                    builder.append(mLiterals[i]);
+                    break;
+
+                case OP_TIME:
+                    timestampFormatter.append(builder, timestamp, nanoTime);
+                    break;
+
+                case OP_THREAD:
+                    builder.append(threadId).append('/').append(threadName);
+                    break;
+
+                case OP_LEVEL:
+                    builder.append(LogPriority.toLetter(priority));
+                    break;
+
+                case OP_TAG:
+                    builder.append(tag);
+                    break;
+
+                case OP_MESSAGE:
+                default:
+                    appendMessage(builder, message, throwable, stackTraceRenderer);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Appends the message followed by the stack trace of the throwable, in the same way as Timber.
+     */
+    private static void appendMessage(StringBuilder builder, String message, Throwable throwable,
+                                      StackTraceRenderer stackTraceRenderer) {
+        if (throwable == null) {
+            builder.append(message);
+            return;
+        }
+
+        if (message != null) {
+            builder.append(message).append('\n');
+        }
+        stackTraceRenderer.append(builder, throwable);
+    }
+}
@@ -0,0 +1,43 @@
+package net.lachlanmckee.timberjunit;
+
+/**
+ * The log priorities accepted by {@link TimberTestRule.Rules#minPriority(int)}.
+ * <p>
+ * These have the same values as the constants within {@code android.util.Log}, which may be used
+ * interchangeably. They are defined here so that the library does not depend on Android, and can
+ * be used within JVM only modules.
+ */
+public final class LogPriority {
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+    public static final int ASSERT = 7;
+
+    private LogPriority() {
+    }
+
+    /**
+     * @return the single letter used to represent the priority within the logs.
+     */
+    static char toLetter(int priority) {
+        switch (priority) {
+            case VERBOSE:
+                return 'V';
+
+            case DEBUG:
+                return 'D';
+
+            case INFO:
+                return 'I';
+
+            case WARN:
+                return 'W';
+
+            case ERROR:
+            default:
+                return 'E';
+        }
+    }
+}
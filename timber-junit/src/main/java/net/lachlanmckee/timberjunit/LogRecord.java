@@ -0,0 +1,83 @@
+package net.lachlanmckee.timberjunit;
+
+/**
+ * A log captured by a {@link TimberTestRule}.
+ *
+ * @see TimberTestRule#logs()
+ */
+public final class LogRecord {
+    private final int mPriority;
+    private final String mTag;
+    private final String mMessage;
+    private final Throwable mThrowable;
+    private final long mTimestamp;
+    private final long mThreadId;
+    private final String mThreadName;
+
+    LogRecord(int priority, String tag, String message, Throwable throwable, long timestamp,
+              long threadId, String threadName) {
+        mPriority = priority;
+        mTag = tag;
+        mMessage = message;
+        mThrowable = throwable;
+        mTimestamp = timestamp;
+        mThreadId = threadId;
+        mThreadName = threadName;
+    }
+
+    /**
+     * @return the priority of the log, such as {@link LogPriority#ERROR}.
+     */
+    public int getPriority() {
+        return mPriority;
+    }
+
+    /**
+     * @return the tag of the log.
+     */
+    public String getTag() {
+        return mTag;
+    }
+
+    /**
+     * @return the message of the log, as formatted by Timber. This does not contain the stack
+     * trace of the throwable, and is null if only a throwable was logged.
+     */
+    public String getMessage() {
+        return mMessage;
+    }
+
+    /**
+     * @return the throwable of the log, or null if the log did not have a throwable.
+     */
+    public Throwable getThrowable() {
+        return mThrowable;
+    }
+
+    /**
+     * @return the time the log was created, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return mTimestamp;
+    }
+
+    /**
+     * @return the id of the thread that created the log.
+     */
+    public long getThreadId() {
+        return mThreadId;
+    }
+
+    /**
+     * @return the name of the thread that created the log.
+     */
+    public String getThreadName() {
+        return mThreadName;
+    }
+
+    @Override
+    public String toString() {
+        return LogPriority.toLetter(mPriority) + "/" + mTag + ": "
+                + (mMessage != null ? mMessage : mThrowable);
+    }
+}
@@ -0,0 +1,269 @@
+package net.lachlanmckee.timberjunit;
+
+import java.util.Arrays;
+
+/**
+ * A growable ring buffer of raw log records, stored as parallel arrays to avoid allocating an
+ * object per record.
+ * <p>
+ * Tags and thread names are repeated by many records, so they are interned into a
+ * {@link StringTable} and each record only stores their ids. Messages are kept as they were
+ * logged, as copying them would slow down both logging and flushing.
+ * <p>
+ * The buffer is designed to be reused between tests. {@link #clear()} only resets the indexes,
+ * the object slots are overwritten by subsequent records rather than being nulled.
+ * <p>
+ * This class is not thread-safe, callers are responsible for synchronization.
+ */
+final class LogRecordBuffer {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * The minimum number of interned strings before unused strings are removed from the tables.
+     */
+    private static final int MIN_STRING_TABLE_COMPACTION_SIZE = 1024;
+
+    private int[] mPriorities;
+    private long[] mTimestamps;
+    private long[] mNanoTimes;
+    private long[] mThreadIds;
+    private int[] mThreadNameIds;
+    private int[] mTagIds;
+    private String[] mMessages;
+    private Throwable[] mThrowables;
+
+    private int mHead;
+    private int mSize;
+    private int mPeakSize;
+    private long mBytes;
+
+    private StringTable mTags = new StringTable();
+    private StringTable mThreadNames = new StringTable();
+    private int mStringTableCompactionSize = MIN_STRING_TABLE_COMPACTION_SIZE;
+
+    LogRecordBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity the number of records the buffer can hold before it must grow. This
+     *                        is rounded up to a power of two.
+     */
+    LogRecordBuffer(int initialCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(initialCapacity, 1) - 1) << 1;
+        if (capacity <= 0) {
+            capacity = 1;
+        }
+        mPriorities = new int[capacity];
+        mTimestamps = new long[capacity];
+        mNanoTimes = new long[capacity];
+        mThreadIds = new long[capacity];
+        mThreadNameIds = new int[capacity];
+        mTagIds = new int[capacity];
+        mMessages = new String[capacity];
+        mThrowables = new Throwable[capacity];
+    }
+
+    /**
+     * Appends a record to the end of the buffer, growing the buffer if it is full.
+     */
+    void add(int priority, String tag, String message, Throwable throwable, long timestamp,
+             long nanoTime, long threadId, String threadName) {
+
+        if (mSize == mPriorities.length) {
+            grow();
+        }
+        if (mTags.size() > mStringTableCompactionSize
+                || mThreadNames.size() > mStringTableCompactionSize) {
+            compactStringTables();
+        }
+
+        int slot = (mHead + mSize) & (mPriorities.length - 1);
+        mPriorities[slot] = priority;
+        mTimestamps[slot] = timestamp;
+        mNanoTimes[slot] = nanoTime;
+        mThreadIds[slot] = threadId;
+        mThreadNameIds[slot] = mThreadNames.intern(threadName);
+        mTagIds[slot] = mTags.intern(tag);
+        mThrowables[slot] = throwable;
+        mMessages[slot] = message;
+        mSize++;
+        mBytes += estimateBytes(tag, message);
+        if (mSize > mPeakSize) {
+            mPeakSize = mSize;
+        }
+    }
+
+    /**
+     * Removes the oldest record from the buffer.
+     */
+    void removeFirst() {
+        int slot = slot(0);
+        mBytes -= estimateBytes(mTags.get(mTagIds[slot]), mMessages[slot]);
+        mMessages[slot] = null;
+        mThrowables[slot] = null;
+
+        mHead = (mHead + 1) & (mPriorities.length - 1);
+        mSize--;
+    }
+
+    /**
+     * @return the number of records within the buffer.
+     */
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * @return the largest number of records held at once since the buffer was last cleared.
+     */
+    int peakSize() {
+        return mPeakSize;
+    }
+
+    /**
+     * @return the number of records the buffer can hold before it must grow.
+     */
+    int capacity() {
+        return mPriorities.length;
+    }
+
+    /**
+     * @return the estimated number of bytes used by the tags and messages within the buffer.
+     */
+    long bytes() {
+        return mBytes;
+    }
+
+    int priorityAt(int index) {
+        return mPriorities[slot(index)];
+    }
+
+    long timestampAt(int index) {
+        return mTimestamps[slot(index)];
+    }
+
+    long nanoTimeAt(int index) {
+        return mNanoTimes[slot(index)];
+    }
+
+    long threadIdAt(int index) {
+        return mThreadIds[slot(index)];
+    }
+
+    String threadNameAt(int index) {
+        return mThreadNames.get(mThreadNameIds[slot(index)]);
+    }
+
+    String tagAt(int index) {
+        return mTags.get(mTagIds[slot(index)]);
+    }
+
+    String messageAt(int index) {
+        return mMessages[slot(index)];
+    }
+
+    Throwable throwableAt(int index) {
+        return mThrowables[slot(index)];
+    }
+
+    /**
+     * Removes all records. The messages and throwables of the records are released, as a cleared
+     * buffer may be kept for reuse by a later test.
+     */
+    void clear() {
+        int capacity = mPriorities.length;
+        int end = mHead + mSize;
+        releaseSlots(mHead, Math.min(end, capacity));
+        if (end > capacity) {
+            releaseSlots(0, end - capacity);
+        }
+
+        mHead = 0;
+        mSize = 0;
+        mPeakSize = 0;
+        mBytes = 0;
+
+        // The interned strings are kept for the next test, unless there are many of them.
+        if (mTags.size() > MIN_STRING_TABLE_COMPACTION_SIZE
+                || mThreadNames.size() > MIN_STRING_TABLE_COMPACTION_SIZE) {
+            mTags.clear();
+            mThreadNames.clear();
+            mStringTableCompactionSize = MIN_STRING_TABLE_COMPACTION_SIZE;
+        }
+    }
+
+    private void releaseSlots(int fromSlot, int toSlot) {
+        Arrays.fill(mMessages, fromSlot, toSlot, null);
+        Arrays.fill(mThrowables, fromSlot, toSlot, null);
+    }
+
+    /**
+     * Estimates the memory used by a record's strings, assuming two bytes per character.
+     */
+    static long estimateBytes(String tag, String message) {
+        long length = 0;
+        if (tag != null) {
+            length += tag.length();
+        }
+        if (message != null) {
+            length += message.length();
+        }
+        return length << 1;
+    }
+
+    private int slot(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+        return (mHead + index) & (mPriorities.length - 1);
+    }
+
+    /**
+     * Doubles the capacity, moving the records so that the oldest record is at index zero.
+     */
+    private void grow() {
+        int capacity = mPriorities.length;
+        int newCapacity = capacity << 1;
+        if (newCapacity <= 0) {
+            throw new IllegalStateException("Log record buffer is too large");
+        }
+        mPriorities = unwrap(mPriorities, new int[newCapacity], capacity);
+        mTimestamps = unwrap(mTimestamps, new long[newCapacity], capacity);
+        mNanoTimes = unwrap(mNanoTimes, new long[newCapacity], capacity);
+        mThreadIds = unwrap(mThreadIds, new long[newCapacity], capacity);
+        mThreadNameIds = unwrap(mThreadNameIds, new int[newCapacity], capacity);
+        mTagIds = unwrap(mTagIds, new int[newCapacity], capacity);
+        mMessages = unwrap(mMessages, new String[newCapacity], capacity);
+        mThrowables = unwrap(mThrowables, new Throwable[newCapacity], capacity);
+        mHead = 0;
+    }
+
+    private <T> T unwrap(T source, T destination, int capacity) {
+        int firstPart = capacity - mHead;
+        System.arraycopy(source, mHead, destination, 0, firstPart);
+        System.arraycopy(source, 0, destination, firstPart, mHead);
+        return destination;
+    }
+
+    /**
+     * Rebuilds the string tables so that they only contain the strings of the buffered records.
+     * Without this the tables would grow indefinitely if the tags are generated, as records are
+     * evicted from the buffer.
+     */
+    private void compactStringTables() {
+        StringTable tags = new StringTable();
+        StringTable threadNames = new StringTable();
+        for (int i = 0; i < mSize; i++) {
+            int slot = (mHead + i) & (mPriorities.length - 1);
+            mTagIds[slot] = tags.intern(mTags.get(mTagIds[slot]));
+            mThreadNameIds[slot] = threadNames.intern(mThreadNames.get(mThreadNameIds[slot]));
+        }
+        mTags = tags;
+        mThreadNames = threadNames;
+
+        // The tables are compacted again once they have doubled, so the cost is amortised.
+        mStringTableCompactionSize = Math.max(MIN_STRING_TABLE_COMPACTION_SIZE,
+                Math.max(tags.size(), threadNames.size()) << 1);
+    }
+}
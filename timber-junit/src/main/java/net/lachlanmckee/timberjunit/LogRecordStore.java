@@ -0,0 +1,85 @@
+package net.lachlanmckee.timberjunit;
+
+import java.io.IOException;
+
+/**
+ * Stores the raw log records captured during a test until they are either flushed or discarded.
+ * <p>
+ * Stores are reused by subsequent tests, so each store only accepts the records of its current
+ * owner. A thread which is still logging to the tree of a completed test therefore cannot add
+ * records to the test which reuses the store.
+ */
+interface LogRecordStore {
+
+    /**
+     * Sets the owner of the store, whose records are accepted. Once this returns, records of the
+     * previous owner are no longer added.
+     *
+     * @param owner the owner, or null to accept no records.
+     */
+    void setOwner(Object owner);
+
+    /**
+     * Stores a log record, unless the owner is not the owner of the store. This may be called
+     * from any thread.
+     *
+     * @param owner     the owner that captured the record, which is never null.
+     * @param throwable the throwable of the log, or null.
+     * @param nanoTime  the {@link System#nanoTime()} when the record was logged, which is only
+     *                  required by stores that must order records logged by different threads.
+     */
+    void add(Object owner, int priority, String tag, String message, Throwable throwable, long timestamp,
+             long nanoTime, long threadId, String threadName);
+
+    /**
+     * Visits every stored record in the order they were logged.
+     *
+     * @param visitor the visitor that receives each record.
+     * @throws IOException if the records could not be read, or the visitor failed.
+     */
+    void forEach(Visitor visitor) throws IOException;
+
+    /**
+     * Discards the records created before the timestamp, other than those kept at the start by the
+     * {@link TimberTestRule.OverflowPolicy}. The discarded records are counted.
+     *
+     * @param minTimestamp the time of the oldest record kept, in milliseconds since the epoch.
+     */
+    void evictBefore(long minTimestamp);
+
+    /**
+     * Discards every stored record.
+     */
+    void clear();
+
+    /**
+     * @return the largest number of records held at once by a single buffer of the store since
+     * it was last cleared.
+     */
+    int peakSize();
+
+    /**
+     * @return the number of records the largest buffer of the store can hold before it must grow.
+     */
+    int capacity();
+
+    /**
+     * Receives the records of a {@link LogRecordStore}.
+     */
+    interface Visitor {
+        /**
+         * @param buffer the buffer containing the record.
+         * @param index  the index of the record within the buffer.
+         * @throws IOException if the record could not be written.
+         */
+        void visit(LogRecordBuffer buffer, int index) throws IOException;
+
+        /**
+         * Called in place of records that were discarded due to the buffer limits.
+         *
+         * @param count the number of records that were discarded.
+         * @throws IOException if the marker could not be written.
+         */
+        void visitDiscarded(int count) throws IOException;
+    }
+}
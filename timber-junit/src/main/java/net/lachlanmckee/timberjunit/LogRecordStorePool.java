@@ -0,0 +1,91 @@
+package net.lachlanmckee.timberjunit;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of {@link LogRecordStore}s which are recycled between tests, so that the record arrays
+ * grown by one test are reused by the next rather than being allocated again.
+ * <p>
+ * The pool tracks a high-water mark of the number of records held by previous tests, which decays
+ * as tests log less. New stores are created with enough capacity to hold the high-water mark, and
+ * stores grown far beyond it by an unusually verbose test are discarded rather than pooled, so
+ * that their memory is not retained for the rest of the test run.
+ */
+final class LogRecordStorePool {
+    private static final int MAX_POOLED_STORES = 8;
+    private static final int MIN_CAPACITY = 64;
+    private static final int MAX_INITIAL_CAPACITY = 1 << 16;
+    private static final int OVERSIZED_FACTOR = 4;
+
+    /**
+     * Creates the stores of a pool.
+     */
+    interface Factory {
+        /**
+         * @param initialCapacity the number of records the store should hold before it grows.
+         * @return a new empty store.
+         */
+        LogRecordStore create(int initialCapacity);
+    }
+
+    private final Factory mFactory;
+    private final Queue<LogRecordStore> mStores = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger mPooledCount = new AtomicInteger();
+    private final AtomicInteger mHighWaterMark = new AtomicInteger();
+
+    LogRecordStorePool(Factory factory) {
+        mFactory = factory;
+    }
+
+    /**
+     * @return an empty store, which is either recycled or sized from the high-water mark.
+     */
+    LogRecordStore acquire() {
+        LogRecordStore store = mStores.poll();
+        if (store != null) {
+            mPooledCount.decrementAndGet();
+            return store;
+        }
+        return mFactory.create(Math.min(targetCapacity(), MAX_INITIAL_CAPACITY));
+    }
+
+    /**
+     * Returns a store to the pool once its test has completed, and updates the high-water mark.
+     *
+     * @param store    the store, which must already be cleared.
+     * @param peakSize the largest number of records held by the store during the test.
+     */
+    void release(LogRecordStore store, int peakSize) {
+        updateHighWaterMark(peakSize);
+
+        if (store.capacity() > OVERSIZED_FACTOR * (long) targetCapacity()) {
+            return;
+        }
+        if (mPooledCount.incrementAndGet() > MAX_POOLED_STORES) {
+            mPooledCount.decrementAndGet();
+            return;
+        }
+        mStores.offer(store);
+    }
+
+    /**
+     * The high-water mark is raised immediately, but decays by a quarter after each test which
+     * logs less, so that a single verbose test does not size every subsequent store.
+     */
+    private void updateHighWaterMark(int peakSize) {
+        while (true) {
+            int highWaterMark = mHighWaterMark.get();
+            int decayed = highWaterMark - (highWaterMark >> 2);
+            int updated = Math.max(peakSize, decayed);
+            if (updated == highWaterMark || mHighWaterMark.compareAndSet(highWaterMark, updated)) {
+                return;
+            }
+        }
+    }
+
+    private int targetCapacity() {
+        return Math.max(mHighWaterMark.get(), MIN_CAPACITY);
+    }
+}
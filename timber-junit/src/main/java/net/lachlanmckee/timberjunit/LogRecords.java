@@ -0,0 +1,211 @@
+package net.lachlanmckee.timberjunit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable list of captured {@link LogRecord}s, which can be queried and asserted upon without
+ * formatting the logs.
+ * <p>
+ * The records are indexed by priority and tag the first time they are queried by either, so
+ * repeated queries of the same records do not scan every record.
+ * <pre>
+ * timberTestRule.logs()
+ *         .withPriority(LogPriority.ERROR)
+ *         .withTag("Network")
+ *         .withMessageMatching("timed out")
+ *         .assertCount(1);
+ * </pre>
+ *
+ * @see TimberTestRule#logs()
+ */
+public final class LogRecords implements Iterable<LogRecord> {
+    private final List<LogRecord> mRecords;
+
+    private Map<Integer, List<LogRecord>> mRecordsByPriority;
+    private Map<String, List<LogRecord>> mRecordsByTag;
+
+    LogRecords(List<LogRecord> records) {
+        mRecords = Collections.unmodifiableList(records);
+    }
+
+    /**
+     * @return the number of records.
+     */
+    public int size() {
+        return mRecords.size();
+    }
+
+    /**
+     * @return whether there are no records.
+     */
+    public boolean isEmpty() {
+        return mRecords.isEmpty();
+    }
+
+    /**
+     * @return the record at the index, in the order the records were logged.
+     */
+    public LogRecord get(int index) {
+        return mRecords.get(index);
+    }
+
+    /**
+     * @return an unmodifiable list of the records, in the order they were logged.
+     */
+    public List<LogRecord> asList() {
+        return mRecords;
+    }
+
+    @Override
+    public Iterator<LogRecord> iterator() {
+        return mRecords.iterator();
+    }
+
+    /**
+     * @param priority the priority, such as {@link LogPriority#ERROR}.
+     * @return the records with the priority.
+     */
+    public LogRecords withPriority(int priority) {
+        List<LogRecord> records = recordsByPriority().get(priority);
+        return records != null ? new LogRecords(records) : empty();
+    }
+
+    /**
+     * @param minPriority the lowest priority, such as {@link LogPriority#WARN}.
+     * @return the records with the priority or a higher priority.
+     */
+    public LogRecords withMinPriority(int minPriority) {
+        List<LogRecord> records = new ArrayList<>();
+        for (LogRecord record : mRecords) {
+            if (record.getPriority() >= minPriority) {
+                records.add(record);
+            }
+        }
+        return new LogRecords(records);
+    }
+
+    /**
+     * @param tag the tag of the records.
+     * @return the records with the tag.
+     */
+    public LogRecords withTag(String tag) {
+        List<LogRecord> records = recordsByTag().get(tag);
+        return records != null ? new LogRecords(records) : empty();
+    }
+
+    /**
+     * @param regex the regular expression that must be found within the message.
+     * @return the records whose message contains a match of the regular expression.
+     */
+    public LogRecords withMessageMatching(String regex) {
+        return withMessageMatching(Pattern.compile(regex));
+    }
+
+    /**
+     * @param pattern the pattern that must be found within the message.
+     * @return the records whose message contains a match of the pattern.
+     */
+    public LogRecords withMessageMatching(Pattern pattern) {
+        List<LogRecord> records = new ArrayList<>();
+        for (LogRecord record : mRecords) {
+            if (record.getMessage() != null && pattern.matcher(record.getMessage()).find()) {
+                records.add(record);
+            }
+        }
+        return new LogRecords(records);
+    }
+
+    /**
+     * Asserts the number of records.
+     *
+     * @param expectedCount the expected number of records.
+     * @return the records, to allow further assertions.
+     * @throws AssertionError if the number of records does not match.
+     */
+    public LogRecords assertCount(int expectedCount) {
+        if (mRecords.size() != expectedCount) {
+            throw new AssertionError("Expected " + expectedCount + " logs, but found "
+                    + describe());
+        }
+        return this;
+    }
+
+    /**
+     * Asserts that there are no records.
+     *
+     * @return the records, to allow further assertions.
+     * @throws AssertionError if there are records.
+     */
+    public LogRecords assertEmpty() {
+        return assertCount(0);
+    }
+
+    /**
+     * Asserts that there is at least one record.
+     *
+     * @return the records, to allow further assertions.
+     * @throws AssertionError if there are no records.
+     */
+    public LogRecords assertNotEmpty() {
+        if (mRecords.isEmpty()) {
+            throw new AssertionError("Expected at least one log, but found none");
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return mRecords.toString();
+    }
+
+    private String describe() {
+        StringBuilder builder = new StringBuilder().append(mRecords.size()).append(':');
+        for (LogRecord record : mRecords) {
+            builder.append(LogSinks.LINE_SEPARATOR).append(record);
+        }
+        return builder.toString();
+    }
+
+    private synchronized Map<Integer, List<LogRecord>> recordsByPriority() {
+        if (mRecordsByPriority == null) {
+            Map<Integer, List<LogRecord>> recordsByPriority = new HashMap<>();
+            for (LogRecord record : mRecords) {
+                Integer priority = record.getPriority();
+                List<LogRecord> records = recordsByPriority.get(priority);
+                if (records == null) {
+                    records = new ArrayList<>();
+                    recordsByPriority.put(priority, records);
+                }
+                records.add(record);
+            }
+            mRecordsByPriority = recordsByPriority;
+        }
+        return mRecordsByPriority;
+    }
+
+    private synchronized Map<String, List<LogRecord>> recordsByTag() {
+        if (mRecordsByTag == null) {
+            Map<String, List<LogRecord>> recordsByTag = new HashMap<>();
+            for (LogRecord record : mRecords) {
+                List<LogRecord> records = recordsByTag.get(record.getTag());
+                if (records == null) {
+                    records = new ArrayList<>();
+                    recordsByTag.put(record.getTag(), records);
+                }
+                records.add(record);
+            }
+            mRecordsByTag = recordsByTag;
+        }
+        return mRecordsByTag;
+    }
+
+    private static LogRecords empty() {
+        return new LogRecords(Collections.<LogRecord>emptyList());
+    }
+}
@@ -0,0 +1,118 @@
+package net.lachlanmckee.timberjunit;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import timber.log.Timber;
+
+/**
+ * Routes logs to the test which created them, so that tests running in parallel within the same
+ * JVM only capture their own logs.
+ * <p>
+ * A single dispatcher tree is planted while any capture is registered. Each thread is associated
+ * with the capture of the test it is running, and threads created by that thread inherit the
+ * association. Logs from a thread without an active capture, such as a thread pool created before
+ * the test, are delivered to every registered capture, as their owner is unknown.
+ */
+final class LogRouter {
+    private static final Set<Capture> CAPTURES = new CopyOnWriteArraySet<>();
+    private static final InheritableThreadLocal<Capture> OWNER = new InheritableThreadLocal<>();
+    private static final Timber.Tree DISPATCHER = new DispatcherTree();
+
+    private LogRouter() {
+    }
+
+    /**
+     * Receives the logs routed to a test.
+     */
+    interface Capture {
+        /**
+         * @return whether the capture may accept a log, before its message is formatted.
+         * @see Timber.Tree#isLoggable(String, int)
+         */
+        boolean isLoggable(String tag, int priority);
+
+        /**
+         * @see DeferredThrowableTree#logRecord(int, String, String, Throwable)
+         */
+        void capture(int priority, String tag, String message, Throwable t);
+    }
+
+    /**
+     * Registers a capture, planting the dispatcher tree if it is the first capture.
+     */
+    static void register(Capture capture) {
+        synchronized (CAPTURES) {
+            if (CAPTURES.isEmpty()) {
+                Timber.plant(DISPATCHER);
+            }
+            CAPTURES.add(capture);
+        }
+    }
+
+    /**
+     * Unregisters a capture, uprooting the dispatcher tree if it was the last capture.
+     */
+    static void unregister(Capture capture) {
+        synchronized (CAPTURES) {
+            if (CAPTURES.remove(capture) && CAPTURES.isEmpty()) {
+                Timber.uproot(DISPATCHER);
+            }
+        }
+    }
+
+    /**
+     * Associates the current thread, and any threads it creates, with a capture.
+     *
+     * @return the capture previously associated with the thread, which should be restored using
+     * {@link #restoreOwner(Capture)} once the test completes.
+     */
+    static Capture setOwner(Capture capture) {
+        Capture previous = OWNER.get();
+        OWNER.set(capture);
+        return previous;
+    }
+
+    /**
+     * Restores the capture associated with the current thread.
+     */
+    static void restoreOwner(Capture previous) {
+        if (previous != null) {
+            OWNER.set(previous);
+        } else {
+            OWNER.remove();
+        }
+    }
+
+    private static final class DispatcherTree extends DeferredThrowableTree {
+        @Override
+        protected boolean isLoggable(String tag, int priority) {
+            Capture owner = OWNER.get();
+            if (owner != null && CAPTURES.contains(owner)) {
+                return owner.isLoggable(tag, priority);
+            }
+
+            // Every capture is asked, as each remembers its decision for the log which follows.
+            boolean loggable = false;
+            for (Capture capture : CAPTURES) {
+                if (capture.isLoggable(tag, priority)) {
+                    loggable = true;
+                }
+            }
+            return loggable;
+        }
+
+        @Override
+        protected void logRecord(int priority, String tag, String message, Throwable t) {
+            Capture owner = OWNER.get();
+            if (owner != null && CAPTURES.contains(owner)) {
+                owner.capture(priority, tag, message, t);
+                return;
+            }
+
+            for (Capture capture : CAPTURES) {
+                capture.capture(priority, tag, message, t);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package net.lachlanmckee.timberjunit;
+
+import java.io.IOException;
+
+/**
+ * The destination of the logs output by a {@link TimberTestRule}.
+ * <p>
+ * Common implementations are available from {@link LogSinks}.
+ */
+public interface LogSink {
+
+    /**
+     * Writes one or more complete lines of log output. Each line, including the last, ends with a
+     * line separator.
+     * <p>
+     * When the logs of a failed test are flushed, the buffered lines are passed in large chunks,
+     * so implementations should write the text in bulk rather than line by line.
+     * <p>
+     * The text may be reused once this method returns, so it must not be retained.
+     *
+     * @param text the lines to write.
+     * @throws IOException if the text could not be written.
+     */
+    void write(CharSequence text) throws IOException;
+}
@@ -0,0 +1,109 @@
+package net.lachlanmckee.timberjunit;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Provides the standard {@link LogSink} implementations.
+ */
+public final class LogSinks {
+    /**
+     * The separator appended to every line, matching {@link PrintStream#println()}.
+     */
+    static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private LogSinks() {
+    }
+
+    /**
+     * @return a sink that writes to {@link System#out}. The stream is resolved on every write, so
+     * the sink respects {@link System#setOut(PrintStream)}.
+     */
+    public static LogSink stdout() {
+        return new LogSink() {
+            @Override
+            public void write(CharSequence text) {
+                writeToStream(System.out, text);
+            }
+        };
+    }
+
+    /**
+     * @return a sink that writes to {@link System#err}. The stream is resolved on every write, so
+     * the sink respects {@link System#setErr(PrintStream)}.
+     */
+    public static LogSink stderr() {
+        return new LogSink() {
+            @Override
+            public void write(CharSequence text) {
+                writeToStream(System.err, text);
+            }
+        };
+    }
+
+    /**
+     * Creates a sink that writes to a {@link Writer}, which is flushed after every write.
+     *
+     * @param writer the writer that receives the logs.
+     * @return a new sink.
+     */
+    public static LogSink writer(final Writer writer) {
+        return new LogSink() {
+            @Override
+            public void write(CharSequence text) throws IOException {
+                synchronized (writer) {
+                    writer.append(text);
+                    writer.flush();
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a sink that writes UTF-8 encoded logs to an {@link OutputStream}, which is flushed
+     * after every write.
+     *
+     * @param outputStream the stream that receives the logs.
+     * @return a new sink.
+     */
+    public static LogSink outputStream(OutputStream outputStream) {
+        return writer(new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8)));
+    }
+
+    /**
+     * Creates a sink that appends UTF-8 encoded logs to a file. The file is opened when the first
+     * logs are written, and remains open for the lifetime of the process.
+     *
+     * @param file the file that receives the logs.
+     * @return a new sink.
+     */
+    public static LogSink file(final File file) {
+        return new LogSink() {
+            private Writer mWriter;
+
+            @Override
+            public synchronized void write(CharSequence text) throws IOException {
+                if (mWriter == null) {
+                    mWriter = new BufferedWriter(
+                            new OutputStreamWriter(new FileOutputStream(file, true), UTF_8));
+                }
+                mWriter.append(text);
+                mWriter.flush();
+            }
+        };
+    }
+
+    private static void writeToStream(PrintStream stream, CharSequence text) {
+        // A single print call takes the stream's lock and flushes once for all of the lines.
+        stream.print(text.toString());
+    }
+}
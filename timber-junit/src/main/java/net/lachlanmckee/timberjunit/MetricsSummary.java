@@ -0,0 +1,102 @@
+package net.lachlanmckee.timberjunit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates the {@link CaptureMetrics} of each test class, and prints them when the JVM exits,
+ * ordered by the time spent formatting and flushing logs. This shows which test classes spend
+ * the most time logging.
+ */
+final class MetricsSummary {
+    private static final MetricsSummary INSTANCE = new MetricsSummary();
+    private static boolean sShutdownHookAdded;
+
+    private final Map<String, CaptureMetrics> mClassMetrics = new LinkedHashMap<>();
+
+    /**
+     * Adds the metrics of a test, or of the logs created outside of any test, to the summary
+     * printed when the JVM exits.
+     *
+     * @param className the name of the test class.
+     * @param metrics   the metrics to add.
+     */
+    static void record(String className, CaptureMetrics metrics) {
+        INSTANCE.add(className, metrics);
+
+        synchronized (INSTANCE) {
+            if (!sShutdownHookAdded) {
+                sShutdownHookAdded = true;
+                Runtime.getRuntime().addShutdownHook(new Thread("timber-junit-metrics") {
+                    @Override
+                    public void run() {
+                        String summary = INSTANCE.render();
+                        if (summary != null) {
+                            System.err.print(summary);
+                            System.err.flush();
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Adds the metrics of a test to its test class.
+     *
+     * @param className the name of the test class.
+     * @param metrics   the metrics to add.
+     */
+    void add(String className, CaptureMetrics metrics) {
+        synchronized (mClassMetrics) {
+            CaptureMetrics classMetrics = mClassMetrics.get(className);
+            mClassMetrics.put(className,
+                    classMetrics != null ? classMetrics.plus(metrics) : metrics);
+        }
+    }
+
+    /**
+     * @return the metrics of each test class, ordered by the time spent formatting and flushing
+     * logs, or null if no metrics were added.
+     */
+    String render() {
+        List<Map.Entry<String, CaptureMetrics>> entries;
+        synchronized (mClassMetrics) {
+            entries = new ArrayList<>(mClassMetrics.entrySet());
+        }
+        if (entries.isEmpty()) {
+            return null;
+        }
+
+        Collections.sort(entries, new Comparator<Map.Entry<String, CaptureMetrics>>() {
+            @Override
+            public int compare(Map.Entry<String, CaptureMetrics> a,
+                               Map.Entry<String, CaptureMetrics> b) {
+                return compareLong(cost(b.getValue()), cost(a.getValue()));
+            }
+        });
+
+        StringBuilder builder = new StringBuilder("Timber capture metrics by test class:")
+                .append(LogSinks.LINE_SEPARATOR);
+        for (Map.Entry<String, CaptureMetrics> entry : entries) {
+            builder.append("  ")
+                    .append(entry.getKey())
+                    .append(": ")
+                    .append(entry.getValue())
+                    .append(LogSinks.LINE_SEPARATOR);
+        }
+        return builder.toString();
+    }
+
+    private static long cost(CaptureMetrics metrics) {
+        return metrics.getFormatNanos() + metrics.getFlushNanos();
+    }
+
+    private static int compareLong(long a, long b) {
+        return a < b ? -1 : (a == b ? 0 : 1);
+    }
+}
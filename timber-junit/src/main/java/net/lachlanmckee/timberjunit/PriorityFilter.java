@@ -0,0 +1,175 @@
+package net.lachlanmckee.timberjunit;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Decides whether a log is captured based on its priority, its tag, and the package of the class
+ * which created it.
+ * <p>
+ * The minimum priority of a log is the first of the following which applies:
+ * <ol>
+ * <li>The minimum priority of its exact tag.</li>
+ * <li>The minimum priority of the longest prefix of its tag.</li>
+ * <li>The minimum priority of the longest package containing the calling class.</li>
+ * <li>The global minimum priority.</li>
+ * </ol>
+ * The filter is evaluated by Timber before the message is formatted, so rejected logs cost
+ * almost nothing. When the tag of a log is not explicit, it is only inferred if the priority of
+ * the log could be accepted for some tag, as inferring the tag walks the stack. Likewise the
+ * calling class is only found when a package minimum priority may apply.
+ * <p>
+ * Prefixes and packages are looked up by hashing each candidate prefix, longest first, and the
+ * result for each tag and class is memoized.
+ */
+final class PriorityFilter {
+    private static final int NO_MIN_PRIORITY = Integer.MIN_VALUE;
+    private static final int MAX_MEMOIZED_LOOKUPS = 1024;
+
+    private final int mMinPriority;
+    private final int mLowestMinPriority;
+    private final int mLowestUntaggedMinPriority;
+    private final Map<String, Integer> mTagMinPriorities;
+    private final Map<String, Integer> mTagPrefixMinPriorities;
+    private final int[] mTagPrefixLengths;
+    private final Map<String, Integer> mPackageMinPriorities;
+
+    private final ConcurrentMap<String, Integer> mTagLookups = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Integer> mPackageLookups = new ConcurrentHashMap<>();
+
+    /**
+     * @param minPriority            the minimum priority of logs which no other rule applies to.
+     * @param tagMinPriorities       the minimum priority of each tag.
+     * @param tagPrefixMinPriorities the minimum priority of each tag prefix.
+     * @param packageMinPriorities   the minimum priority of each package of calling classes.
+     */
+    PriorityFilter(int minPriority, Map<String, Integer> tagMinPriorities,
+                   Map<String, Integer> tagPrefixMinPriorities,
+                   Map<String, Integer> packageMinPriorities) {
+
+        mMinPriority = minPriority;
+        mTagMinPriorities = new HashMap<>(tagMinPriorities);
+        mTagPrefixMinPriorities = new HashMap<>(tagPrefixMinPriorities);
+        mPackageMinPriorities = new HashMap<>(packageMinPriorities);
+
+        // The prefixes are looked up longest first, so the most specific prefix applies.
+        TreeSet<Integer> prefixLengths = new TreeSet<>();
+        for (String prefix : tagPrefixMinPriorities.keySet()) {
+            prefixLengths.add(prefix.length());
+        }
+        mTagPrefixLengths = new int[prefixLengths.size()];
+        int index = 0;
+        for (int length : prefixLengths.descendingSet()) {
+            mTagPrefixLengths[index++] = length;
+        }
+
+        mLowestUntaggedMinPriority = lowest(minPriority, packageMinPriorities);
+        mLowestMinPriority = lowest(lowest(mLowestUntaggedMinPriority, tagMinPriorities),
+                tagPrefixMinPriorities);
+    }
+
+    private static int lowest(int minPriority, Map<String, Integer> minPriorities) {
+        int lowest = minPriority;
+        for (int value : minPriorities.values()) {
+            lowest = Math.min(lowest, value);
+        }
+        return lowest;
+    }
+
+    /**
+     * @return whether a log with the priority could be accepted, before its tag is known.
+     */
+    boolean mayAccept(int priority) {
+        return priority >= mLowestMinPriority;
+    }
+
+    /**
+     * @return whether a log with the priority and tag is accepted. The calling class is found if
+     * a package minimum priority may apply to the log.
+     */
+    boolean accepts(String tag, int priority) {
+        if (priority < mLowestMinPriority) {
+            return false;
+        }
+
+        int tagMinPriority = tagMinPriority(tag);
+        if (tagMinPriority != NO_MIN_PRIORITY) {
+            return priority >= tagMinPriority;
+        }
+        if (mPackageMinPriorities.isEmpty()) {
+            return priority >= mMinPriority;
+        }
+        if (priority < mLowestUntaggedMinPriority) {
+            return false;
+        }
+
+        int packageMinPriority = packageMinPriority(CallSiteTags.callerClassName());
+        return priority >= (packageMinPriority != NO_MIN_PRIORITY
+                ? packageMinPriority : mMinPriority);
+    }
+
+    /**
+     * @return the minimum priority of the exact tag or its longest prefix, or
+     * {@link #NO_MIN_PRIORITY} if neither has a minimum priority.
+     */
+    private int tagMinPriority(String tag) {
+        if (tag == null || (mTagMinPriorities.isEmpty() && mTagPrefixLengths.length == 0)) {
+            return NO_MIN_PRIORITY;
+        }
+
+        Integer memoized = mTagLookups.get(tag);
+        if (memoized != null) {
+            return memoized;
+        }
+
+        Integer minPriority = mTagMinPriorities.get(tag);
+        for (int i = 0; minPriority == null && i < mTagPrefixLengths.length; i++) {
+            int length = mTagPrefixLengths[i];
+            if (length <= tag.length()) {
+                minPriority = mTagPrefixMinPriorities.get(tag.substring(0, length));
+            }
+        }
+        return memoize(mTagLookups, tag, minPriority != null ? minPriority : NO_MIN_PRIORITY);
+    }
+
+    /**
+     * @return the minimum priority of the longest package containing the class, or
+     * {@link #NO_MIN_PRIORITY} if no package has a minimum priority.
+     */
+    private int packageMinPriority(String className) {
+        if (className == null) {
+            return NO_MIN_PRIORITY;
+        }
+
+        Integer memoized = mPackageLookups.get(className);
+        if (memoized != null) {
+            return memoized;
+        }
+
+        Integer minPriority = null;
+        String packageName = className;
+        int separator = packageName.lastIndexOf('.');
+        while (minPriority == null && separator > 0) {
+            packageName = packageName.substring(0, separator);
+            minPriority = mPackageMinPriorities.get(packageName);
+            separator = packageName.lastIndexOf('.');
+        }
+        return memoize(mPackageLookups, className,
+                minPriority != null ? minPriority : NO_MIN_PRIORITY);
+    }
+
+    /**
+     * Memoizes a lookup, unless too many lookups have been memoized already, which may happen if
+     * the tags are generated.
+     */
+    private static int memoize(ConcurrentMap<String, Integer> lookups, String key,
+                               int minPriority) {
+        if (lookups.size() < MAX_MEMOIZED_LOOKUPS) {
+            lookups.put(key, minPriority);
+        }
+        return minPriority;
+    }
+}
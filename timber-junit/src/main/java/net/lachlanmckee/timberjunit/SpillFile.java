@@ -0,0 +1,302 @@
+package net.lachlanmckee.timberjunit;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An append only temporary file of log records. Records are written and read through a single
+ * reusable direct buffer, so that there is not a system call per record, and the records are not
+ * held on the heap.
+ * <p>
+ * Each record is encoded as:
+ * <ul>
+ * <li>The length of the encoded record, including this field.</li>
+ * <li>The priority, as a single byte.</li>
+ * <li>The timestamp, nano time and thread id.</li>
+ * <li>The index of the throwable, or -1. Throwables cannot be encoded, so they are kept in
+ * memory.</li>
+ * <li>The thread name, tag and message, each as a header followed by their characters. The header
+ * is the length shifted left by one, with the lowest bit set if the characters are encoded as a
+ * single Latin-1 byte each rather than as two UTF-16 bytes. A header of -1 represents null.</li>
+ * </ul>
+ * The file is created when the first record is appended, and deleted by {@link #delete()}.
+ * <p>
+ * This class is not thread-safe, callers are responsible for synchronization.
+ */
+final class SpillFile {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int FIXED_RECORD_SIZE = 4 + 1 + 8 + 8 + 8 + 4 + 4 + 4 + 4;
+    private static final int LATIN_1_FLAG = 1;
+
+    private final List<Throwable> mThrowables = new ArrayList<>();
+
+    private File mFile;
+    private FileChannel mChannel;
+    private ByteBuffer mBuffer;
+    private long mReadPosition;
+    private int mRecordCount;
+
+    /**
+     * @return the number of records within the file.
+     */
+    int recordCount() {
+        return mRecordCount;
+    }
+
+    /**
+     * Appends a record to the end of the file, creating the file if required.
+     *
+     * @throws IOException if the file could not be created or written.
+     */
+    void append(int priority, String tag, String message, Throwable throwable, long timestamp,
+                long nanoTime, long threadId, String threadName) throws IOException {
+
+        int maxRecordSize = FIXED_RECORD_SIZE
+                + maxEncodedLength(threadName) + maxEncodedLength(tag) + maxEncodedLength(message);
+        ByteBuffer buffer = writeBuffer(maxRecordSize);
+
+        int throwableIndex = -1;
+        if (throwable != null) {
+            throwableIndex = mThrowables.size();
+            mThrowables.add(throwable);
+        }
+
+        // The length is written once the strings have been encoded.
+        int start = buffer.position();
+        buffer.putInt(0);
+        buffer.put((byte) priority);
+        buffer.putLong(timestamp);
+        buffer.putLong(nanoTime);
+        buffer.putLong(threadId);
+        buffer.putInt(throwableIndex);
+        putString(buffer, threadName);
+        putString(buffer, tag);
+        putString(buffer, message);
+        buffer.putInt(start, buffer.position() - start);
+
+        if (buffer != mBuffer) {
+            // The record was too large for the shared buffer.
+            buffer.flip();
+            writeFully(buffer);
+        }
+        mRecordCount++;
+    }
+
+    /**
+     * @return a buffer with space for the record, which is the shared buffer unless the record
+     * is larger than it.
+     */
+    private ByteBuffer writeBuffer(int maxRecordSize) throws IOException {
+        if (mChannel == null) {
+            open();
+        }
+        if (mBuffer == null) {
+            mBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        if (mBuffer.remaining() < maxRecordSize) {
+            flush();
+        }
+        return maxRecordSize <= mBuffer.capacity() ? mBuffer : ByteBuffer.allocate(maxRecordSize);
+    }
+
+    /**
+     * Writes the records held by the shared buffer to the file. The records are discarded even if
+     * they cannot be written, which is then detected when the file is read.
+     */
+    private void flush() throws IOException {
+        mBuffer.flip();
+        try {
+            writeFully(mBuffer);
+
+        } finally {
+            mBuffer.clear();
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            mChannel.write(buffer);
+        }
+    }
+
+    /**
+     * Decodes every record in the order they were appended, visiting each from a single record
+     * buffer.
+     *
+     * @param buffer  an empty buffer which is used to visit each record.
+     * @param visitor the visitor that receives each record.
+     * @throws IOException if the file could not be read, or the visitor failed.
+     */
+    void forEach(LogRecordBuffer buffer, LogRecordStore.Visitor visitor) throws IOException {
+        if (mRecordCount == 0) {
+            return;
+        }
+        flush();
+
+        // The shared buffer is reused to read the file, and is empty again once every record is
+        // read, so that further records can be appended.
+        ByteBuffer in = mBuffer;
+        in.limit(0);
+        mReadPosition = 0;
+        try {
+            for (int visited = 0; visited < mRecordCount; visited++) {
+                in = readable(in, 4);
+                int recordSize = in.getInt(in.position());
+                in = readable(in, recordSize);
+
+                in.getInt();
+                int priority = in.get();
+                long timestamp = in.getLong();
+                long nanoTime = in.getLong();
+                long threadId = in.getLong();
+                int throwableIndex = in.getInt();
+                String threadName = getString(in);
+                String tag = getString(in);
+                String message = getString(in);
+                Throwable throwable = throwableIndex >= 0 ? mThrowables.get(throwableIndex) : null;
+
+                buffer.add(priority, tag, message, throwable, timestamp, nanoTime, threadId,
+                        threadName);
+                try {
+                    visitor.visit(buffer, 0);
+
+                } finally {
+                    buffer.removeFirst();
+                }
+            }
+
+        } finally {
+            mBuffer.clear();
+        }
+    }
+
+    /**
+     * Ensures that at least the size in bytes can be read from the buffer, reading ahead from the
+     * file into the shared buffer. A larger buffer is returned for records that do not fit.
+     */
+    private ByteBuffer readable(ByteBuffer in, int size) throws IOException {
+        if (in.remaining() >= size) {
+            return in;
+        }
+
+        ByteBuffer target = size <= mBuffer.capacity() ? mBuffer : ByteBuffer.allocate(size);
+        if (target == in) {
+            target.compact();
+        } else {
+            target.clear();
+            target.put(in);
+        }
+
+        while (target.position() < size) {
+            int read = mChannel.read(target, mReadPosition);
+            if (read < 0) {
+                throw new EOFException("The spilled logs are incomplete");
+            }
+            mReadPosition += read;
+        }
+        target.flip();
+        return target;
+    }
+
+    /**
+     * Removes every record and deletes the file. The shared buffer is kept for reuse.
+     */
+    void delete() {
+        mThrowables.clear();
+        mRecordCount = 0;
+        if (mBuffer != null) {
+            mBuffer.clear();
+        }
+
+        if (mChannel != null) {
+            try {
+                mChannel.close();
+
+            } catch (IOException ignored) {
+                // The file is deleted regardless.
+            }
+            mChannel = null;
+        }
+
+        if (mFile != null) {
+            if (!mFile.delete()) {
+                mFile.deleteOnExit();
+            }
+            mFile = null;
+        }
+    }
+
+    private void open() throws IOException {
+        File file = File.createTempFile("timber-junit", ".spill");
+        try {
+            mChannel = new RandomAccessFile(file, "rw").getChannel();
+
+        } catch (IOException e) {
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+            throw e;
+        }
+        mFile = file;
+    }
+
+    private static int maxEncodedLength(String value) {
+        return value != null ? value.length() << 1 : 0;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+
+        int length = value.length();
+        if (isLatin1(value)) {
+            buffer.putInt(length << 1 | LATIN_1_FLAG);
+            for (int i = 0; i < length; i++) {
+                buffer.put((byte) value.charAt(i));
+            }
+
+        } else {
+            buffer.putInt(length << 1);
+            for (int i = 0; i < length; i++) {
+                buffer.putChar(value.charAt(i));
+            }
+        }
+    }
+
+    private static boolean isLatin1(String value) {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            if (value.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int header = buffer.getInt();
+        if (header < 0) {
+            return null;
+        }
+
+        char[] chars = new char[header >>> 1];
+        if ((header & LATIN_1_FLAG) != 0) {
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = (char) (buffer.get() & 0xFF);
+            }
+
+        } else {
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = buffer.getChar();
+            }
+        }
+        return new String(chars);
+    }
+}
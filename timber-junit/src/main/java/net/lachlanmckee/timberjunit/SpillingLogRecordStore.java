@@ -0,0 +1,127 @@
+package net.lachlanmckee.timberjunit;
+
+import java.io.IOException;
+
+/**
+ * A {@link LogRecordStore} that keeps a bounded number of records in memory, and moves the older
+ * records to a {@link SpillFile} once the limit is reached. This keeps the heap usage of tests
+ * which log heavily constant, while still keeping every record.
+ * <p>
+ * If the spill file cannot be written, the older records are discarded instead. If it cannot be
+ * read, the records cannot be visited.
+ */
+final class SpillingLogRecordStore implements LogRecordStore {
+    private final int mMaxInMemoryRecords;
+    private final LogRecordBuffer mBuffer;
+    private final LogRecordBuffer mReplayBuffer = new LogRecordBuffer(1);
+    private final SpillFile mSpillFile = new SpillFile();
+    private final Object mLock = new Object();
+
+    private Object mOwner;
+    private boolean mSpillFailed;
+    private int mDiscardedCount;
+
+    /**
+     * @param maxInMemoryRecords the number of records kept in memory before they are spilled.
+     * @param initialCapacity    the number of records the in-memory buffer can hold before it
+     *                           must grow.
+     */
+    SpillingLogRecordStore(int maxInMemoryRecords, int initialCapacity) {
+        mMaxInMemoryRecords = Math.max(maxInMemoryRecords, 1);
+        mBuffer = new LogRecordBuffer(Math.min(initialCapacity, mMaxInMemoryRecords));
+    }
+
+    @Override
+    public void setOwner(Object owner) {
+        synchronized (mLock) {
+            mOwner = owner;
+        }
+    }
+
+    @Override
+    public void add(Object owner, int priority, String tag, String message, Throwable throwable,
+                    long timestamp, long nanoTime, long threadId, String threadName) {
+
+        synchronized (mLock) {
+            if (owner != mOwner) {
+                return;
+            }
+            if (mBuffer.size() >= mMaxInMemoryRecords) {
+                spill();
+            }
+            mBuffer.add(priority, tag, message, throwable, timestamp, nanoTime, threadId,
+                    threadName);
+        }
+    }
+
+    /**
+     * Moves every in-memory record to the spill file. The records are spilled in batches, so the
+     * cost of writing to the file is amortised.
+     */
+    private void spill() {
+        int size = mBuffer.size();
+        int spilled = 0;
+        if (!mSpillFailed) {
+            try {
+                for (; spilled < size; spilled++) {
+                    mSpillFile.append(mBuffer.priorityAt(0), mBuffer.tagAt(0),
+                            mBuffer.messageAt(0), mBuffer.throwableAt(0),
+                            mBuffer.timestampAt(0), mBuffer.nanoTimeAt(0),
+                            mBuffer.threadIdAt(0), mBuffer.threadNameAt(0));
+                    mBuffer.removeFirst();
+                }
+
+            } catch (IOException e) {
+                // The spilled records are kept, and the discarded records follow them.
+                mSpillFailed = true;
+            }
+        }
+
+        mDiscardedCount += size - spilled;
+        mBuffer.clear();
+    }
+
+    @Override
+    public void forEach(Visitor visitor) throws IOException {
+        synchronized (mLock) {
+            mSpillFile.forEach(mReplayBuffer, visitor);
+            if (mDiscardedCount > 0) {
+                visitor.visitDiscarded(mDiscardedCount);
+            }
+            for (int i = 0, size = mBuffer.size(); i < size; i++) {
+                visitor.visit(mBuffer, i);
+            }
+        }
+    }
+
+    /**
+     * Records are not evicted by age, as a retention window cannot be combined with spilling.
+     */
+    @Override
+    public void evictBefore(long minTimestamp) {
+    }
+
+    @Override
+    public void clear() {
+        synchronized (mLock) {
+            mBuffer.clear();
+            mSpillFile.delete();
+            mSpillFailed = false;
+            mDiscardedCount = 0;
+        }
+    }
+
+    @Override
+    public int peakSize() {
+        synchronized (mLock) {
+            return mBuffer.peakSize();
+        }
+    }
+
+    @Override
+    public int capacity() {
+        synchronized (mLock) {
+            return mBuffer.capacity();
+        }
+    }
+}
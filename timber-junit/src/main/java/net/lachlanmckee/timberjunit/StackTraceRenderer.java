@@ -0,0 +1,217 @@
+package net.lachlanmckee.timberjunit;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Renders the stack traces of logged throwables.
+ * <p>
+ * By default the output is identical to {@link Throwable#printStackTrace()}, which matches the
+ * output of Timber. The output can optionally be reduced by:
+ * <ul>
+ * <li>Truncating the frames of each throwable.</li>
+ * <li>Collapsing the frames a stack trace has in common with the previous stack trace.</li>
+ * <li>Replacing a stack trace which is identical to a previously rendered stack trace.</li>
+ * </ul>
+ * The renderer remembers the stack traces it has rendered until it is reset.
+ */
+final class StackTraceRenderer {
+    private static final String CAUSE_CAPTION = "Caused by: ";
+    private static final String SUPPRESSED_CAPTION = "Suppressed: ";
+    private static final int MAX_REMEMBERED_STACK_TRACES = 1024;
+
+    private final int mMaxFrames;
+    private final boolean mCollapseCommonFrames;
+    private final boolean mDedupe;
+
+    private final Set<StackTraceSignature> mRenderedStackTraces = new HashSet<>();
+    private StackTraceElement[] mPreviousFrames;
+
+    /**
+     * @param maxFrames            the maximum number of frames rendered for each throwable.
+     * @param collapseCommonFrames whether frames in common with the previous stack trace are
+     *                             collapsed.
+     * @param dedupe               whether stack traces identical to a previously rendered stack
+     *                             trace are replaced.
+     */
+    StackTraceRenderer(int maxFrames, boolean collapseCommonFrames, boolean dedupe) {
+        mMaxFrames = maxFrames;
+        mCollapseCommonFrames = collapseCommonFrames;
+        mDedupe = dedupe;
+    }
+
+    /**
+     * Appends the stack trace of the throwable, including its causes and suppressed throwables.
+     * Every line ends with a line separator.
+     */
+    synchronized void append(StringBuilder builder, Throwable throwable) {
+        if (mMaxFrames == Integer.MAX_VALUE && !mCollapseCommonFrames && !mDedupe) {
+            builder.append(printStackTrace(throwable));
+            return;
+        }
+
+        if (mDedupe && !rememberStackTrace(throwable)) {
+            builder.append(throwable).append(LogSinks.LINE_SEPARATOR)
+                    .append("\t... identical to a previous stack trace")
+                    .append(LogSinks.LINE_SEPARATOR);
+            return;
+        }
+
+        StackTraceElement[] frames = throwable.getStackTrace();
+        Set<Throwable> seen = newIdentitySet();
+        seen.add(throwable);
+
+        builder.append(throwable).append(LogSinks.LINE_SEPARATOR);
+        int commonFrames = mCollapseCommonFrames ? commonFrames(frames, mPreviousFrames) : 0;
+        appendFrames(builder, "", frames, frames.length - commonFrames);
+        if (commonFrames > 0) {
+            builder.append("\t... ").append(commonFrames)
+                    .append(" frames in common with the previous stack trace")
+                    .append(LogSinks.LINE_SEPARATOR);
+        }
+        appendRelated(builder, throwable, frames, "", seen);
+        mPreviousFrames = frames;
+    }
+
+    /**
+     * Forgets the previously rendered stack traces.
+     */
+    synchronized void reset() {
+        mRenderedStackTraces.clear();
+        mPreviousFrames = null;
+    }
+
+    /**
+     * Appends the suppressed throwables and cause of a throwable, in the same way as
+     * {@link Throwable#printStackTrace()}.
+     */
+    private void appendRelated(StringBuilder builder, Throwable throwable,
+                               StackTraceElement[] frames, String prefix, Set<Throwable> seen) {
+        for (Throwable suppressed : throwable.getSuppressed()) {
+            appendEnclosed(builder, suppressed, frames, SUPPRESSED_CAPTION, prefix + "\t", seen);
+        }
+
+        Throwable cause = throwable.getCause();
+        if (cause != null) {
+            appendEnclosed(builder, cause, frames, CAUSE_CAPTION, prefix, seen);
+        }
+    }
+
+    private void appendEnclosed(StringBuilder builder, Throwable throwable,
+                                StackTraceElement[] enclosingFrames, String caption,
+                                String prefix, Set<Throwable> seen) {
+        if (!seen.add(throwable)) {
+            builder.append(prefix).append(caption).append("[CIRCULAR REFERENCE:")
+                    .append(throwable).append(']').append(LogSinks.LINE_SEPARATOR);
+            return;
+        }
+
+        StackTraceElement[] frames = throwable.getStackTrace();
+        int commonFrames = commonFrames(frames, enclosingFrames);
+
+        builder.append(prefix).append(caption).append(throwable).append(LogSinks.LINE_SEPARATOR);
+        appendFrames(builder, prefix, frames, frames.length - commonFrames);
+        if (commonFrames > 0) {
+            builder.append(prefix).append("\t... ").append(commonFrames).append(" more")
+                    .append(LogSinks.LINE_SEPARATOR);
+        }
+        appendRelated(builder, throwable, frames, prefix, seen);
+    }
+
+    /**
+     * Appends the first frames, truncating them to the maximum number of frames.
+     */
+    private void appendFrames(StringBuilder builder, String prefix, StackTraceElement[] frames,
+                              int count) {
+        int rendered = Math.min(count, mMaxFrames);
+        for (int i = 0; i < rendered; i++) {
+            builder.append(prefix).append("\tat ").append(frames[i])
+                    .append(LogSinks.LINE_SEPARATOR);
+        }
+        if (rendered < count) {
+            builder.append(prefix).append("\t... ").append(count - rendered)
+                    .append(" frames truncated").append(LogSinks.LINE_SEPARATOR);
+        }
+    }
+
+    /**
+     * @return whether the stack trace has not been rendered before.
+     */
+    private boolean rememberStackTrace(Throwable throwable) {
+        StackTraceSignature signature = new StackTraceSignature(throwable);
+        if (mRenderedStackTraces.contains(signature)) {
+            return false;
+        }
+        if (mRenderedStackTraces.size() < MAX_REMEMBERED_STACK_TRACES) {
+            mRenderedStackTraces.add(signature);
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of frames at the bottom of both stack traces which are identical.
+     */
+    private static int commonFrames(StackTraceElement[] frames, StackTraceElement[] otherFrames) {
+        if (otherFrames == null) {
+            return 0;
+        }
+        int index = frames.length - 1;
+        int otherIndex = otherFrames.length - 1;
+        while (index >= 0 && otherIndex >= 0 && frames[index].equals(otherFrames[otherIndex])) {
+            index--;
+            otherIndex--;
+        }
+        return frames.length - 1 - index;
+    }
+
+    private static Set<Throwable> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+    }
+
+    private static String printStackTrace(Throwable throwable) {
+        // Matches the way Timber renders stack traces.
+        StringWriter stringWriter = new StringWriter(256);
+        PrintWriter printWriter = new PrintWriter(stringWriter, false);
+        throwable.printStackTrace(printWriter);
+        printWriter.flush();
+        return stringWriter.toString();
+    }
+
+    /**
+     * Identifies a stack trace by the type, message and frames of a throwable and its causes.
+     */
+    private static final class StackTraceSignature {
+        private final Object[] mParts;
+        private final int mHashCode;
+
+        StackTraceSignature(Throwable throwable) {
+            Set<Throwable> seen = newIdentitySet();
+            List<Object> parts = new ArrayList<>();
+            for (Throwable t = throwable; t != null && seen.add(t); t = t.getCause()) {
+                parts.add(t.toString());
+                parts.add(t.getStackTrace());
+            }
+
+            mParts = parts.toArray();
+            mHashCode = Arrays.deepHashCode(mParts);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StackTraceSignature
+                    && Arrays.deepEquals(mParts, ((StackTraceSignature) o).mParts);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+}
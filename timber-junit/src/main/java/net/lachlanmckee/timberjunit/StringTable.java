@@ -0,0 +1,78 @@
+package net.lachlanmckee.timberjunit;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns strings which are repeated by many log records, such as tags and thread names, so that
+ * each record only stores a small integer id.
+ * <p>
+ * This class is not thread-safe, callers are responsible for synchronization.
+ */
+final class StringTable {
+    /**
+     * The id of a null string.
+     */
+    static final int NULL_ID = -1;
+
+    private final Map<String, Integer> mIds = new HashMap<>();
+    private String[] mStrings = new String[16];
+    private int mSize;
+
+    /**
+     * The most recently interned string, which is usually the next string to be interned.
+     */
+    private String mLastString;
+    private int mLastId = NULL_ID;
+
+    /**
+     * @return the id of the string, which is added to the table if required.
+     */
+    int intern(String value) {
+        if (value == null) {
+            return NULL_ID;
+        }
+        if (value == mLastString) {
+            return mLastId;
+        }
+
+        Integer id = mIds.get(value);
+        if (id == null) {
+            if (mSize == mStrings.length) {
+                mStrings = Arrays.copyOf(mStrings, mSize << 1);
+            }
+            id = mSize;
+            mStrings[mSize++] = value;
+            mIds.put(value, id);
+        }
+        mLastString = value;
+        mLastId = id;
+        return id;
+    }
+
+    /**
+     * @return the string with the id.
+     */
+    String get(int id) {
+        return id != NULL_ID ? mStrings[id] : null;
+    }
+
+    /**
+     * @return the number of interned strings.
+     */
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * Removes every string.
+     */
+    void clear() {
+        mIds.clear();
+        Arrays.fill(mStrings, 0, mSize, null);
+        mSize = 0;
+        mLastString = null;
+        mLastId = NULL_ID;
+    }
+}
@@ -0,0 +1,77 @@
+package net.lachlanmckee.timberjunit;
+
+import java.io.IOException;
+
+/**
+ * A {@link LogRecordStore} that appends every record to a single buffer guarded by a lock.
+ */
+final class SynchronizedLogRecordStore implements LogRecordStore {
+    private final BoundedLogRecordBuffer mBuffer;
+    private final Object mBufferLock = new Object();
+
+    private Object mOwner;
+
+    SynchronizedLogRecordStore(int maxRecords, long maxBytes,
+                               TimberTestRule.OverflowPolicy overflowPolicy,
+                               long retentionMillis, int initialCapacity) {
+        mBuffer = new BoundedLogRecordBuffer(maxRecords, maxBytes, overflowPolicy,
+                retentionMillis, initialCapacity);
+    }
+
+    @Override
+    public void setOwner(Object owner) {
+        synchronized (mBufferLock) {
+            mOwner = owner;
+        }
+    }
+
+    @Override
+    public void add(Object owner, int priority, String tag, String message, Throwable throwable,
+                    long timestamp, long nanoTime, long threadId, String threadName) {
+
+        synchronized (mBufferLock) {
+            if (owner != mOwner) {
+                return;
+            }
+            mBuffer.add(priority, tag, message, throwable, timestamp, nanoTime, threadId,
+                    threadName);
+        }
+    }
+
+    @Override
+    public void forEach(Visitor visitor) throws IOException {
+        synchronized (mBufferLock) {
+            for (int i = 0, size = mBuffer.size(); i < size; i++) {
+                mBuffer.visit(i, visitor);
+            }
+        }
+    }
+
+    @Override
+    public void evictBefore(long minTimestamp) {
+        synchronized (mBufferLock) {
+            mBuffer.evictBefore(minTimestamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (mBufferLock) {
+            mBuffer.clear();
+        }
+    }
+
+    @Override
+    public int peakSize() {
+        synchronized (mBufferLock) {
+            return mBuffer.peakSize();
+        }
+    }
+
+    @Override
+    public int capacity() {
+        synchronized (mBufferLock) {
+            return mBuffer.capacity();
+        }
+    }
+}
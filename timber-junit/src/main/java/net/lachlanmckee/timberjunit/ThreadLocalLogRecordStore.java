@@ -0,0 +1,196 @@
+package net.lachlanmckee.timberjunit;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A {@link LogRecordStore} that gives every logging thread its own buffer, so that threads never
+ * contend with each other while logging. The buffers are merged in the order the records were
+ * logged, using their {@link System#nanoTime()}, when the records are visited.
+ * <p>
+ * Each buffer is guarded by its own lock, which is only ever contended by the thread visiting or
+ * clearing the records. The buffer limits apply to each thread's buffer individually.
+ * <p>
+ * Threads may continue to log, and evict their oldest records, while the records are visited. Each
+ * buffer is therefore copied while its lock is held, and the copies are merged.
+ */
+final class ThreadLocalLogRecordStore implements LogRecordStore {
+    private final int mMaxRecords;
+    private final long mMaxBytes;
+    private final TimberTestRule.OverflowPolicy mOverflowPolicy;
+    private final long mRetentionMillis;
+    private final int mInitialCapacity;
+
+    private final List<Segment> mSegments = new CopyOnWriteArrayList<>();
+
+    private volatile Object mOwner;
+
+    private final ThreadLocal<Segment> mThreadSegment = new ThreadLocal<Segment>() {
+        @Override
+        protected Segment initialValue() {
+            Segment segment = new Segment(Thread.currentThread(),
+                    new BoundedLogRecordBuffer(mMaxRecords, mMaxBytes, mOverflowPolicy,
+                            mRetentionMillis, mInitialCapacity));
+            mSegments.add(segment);
+            return segment;
+        }
+    };
+
+    /**
+     * @param initialCapacity the number of records each thread's buffer can hold before it must
+     *                        grow.
+     */
+    ThreadLocalLogRecordStore(int maxRecords, long maxBytes,
+                              TimberTestRule.OverflowPolicy overflowPolicy,
+                              long retentionMillis, int initialCapacity) {
+        mMaxRecords = maxRecords;
+        mMaxBytes = maxBytes;
+        mOverflowPolicy = overflowPolicy;
+        mRetentionMillis = retentionMillis;
+        mInitialCapacity = initialCapacity;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The owner is checked while the lock of the thread's buffer is held. A record of the previous
+     * owner being added concurrently is therefore either rejected, or added before the buffer is
+     * next cleared.
+     */
+    @Override
+    public void setOwner(Object owner) {
+        mOwner = owner;
+    }
+
+    @Override
+    public void add(Object owner, int priority, String tag, String message, Throwable throwable,
+                    long timestamp, long nanoTime, long threadId, String threadName) {
+
+        Segment segment = mThreadSegment.get();
+        synchronized (segment) {
+            if (owner != mOwner) {
+                return;
+            }
+            segment.mBuffer.add(priority, tag, message, throwable, timestamp, nanoTime, threadId,
+                    threadName);
+        }
+    }
+
+    @Override
+    public void forEach(Visitor visitor) throws IOException {
+        Segment[] segments = mSegments.toArray(new Segment[0]);
+        LogRecordBuffer[] records = new LogRecordBuffer[segments.length];
+        int[] markerPositions = new int[segments.length];
+        int[] discardedCounts = new int[segments.length];
+        int[] positions = new int[segments.length];
+
+        for (int i = 0; i < segments.length; i++) {
+            Segment segment = segments[i];
+            synchronized (segment) {
+                records[i] = new LogRecordBuffer(segment.mBuffer.size());
+                markerPositions[i] = segment.mBuffer.copyTo(records[i]);
+                discardedCounts[i] = segment.mBuffer.discardedCount();
+            }
+        }
+
+        // A linear scan for the oldest record is used, as only a small number of threads log.
+        while (true) {
+            int oldestSegment = -1;
+            long oldestNanoTime = 0;
+            for (int i = 0; i < segments.length; i++) {
+                if (positions[i] >= records[i].size()) {
+                    continue;
+                }
+
+                long nanoTime = records[i].nanoTimeAt(positions[i]);
+                // Nano times must be compared by their difference, as they may overflow.
+                if (oldestSegment == -1 || nanoTime - oldestNanoTime < 0) {
+                    oldestSegment = i;
+                    oldestNanoTime = nanoTime;
+                }
+            }
+
+            if (oldestSegment == -1) {
+                break;
+            }
+
+            // A discarded marker is ordered by the record that follows it.
+            visitMarker(visitor, positions[oldestSegment], markerPositions[oldestSegment],
+                    discardedCounts[oldestSegment]);
+            visitor.visit(records[oldestSegment], positions[oldestSegment]++);
+        }
+
+        // Only trailing discarded markers remain, which have no following record to order them.
+        for (int i = 0; i < segments.length; i++) {
+            visitMarker(visitor, positions[i], markerPositions[i], discardedCounts[i]);
+        }
+    }
+
+    private static void visitMarker(Visitor visitor, int position, int markerPosition,
+                                    int discardedCount) throws IOException {
+        if (discardedCount > 0 && position == markerPosition) {
+            visitor.visitDiscarded(discardedCount);
+        }
+    }
+
+    @Override
+    public void evictBefore(long minTimestamp) {
+        for (Segment segment : mSegments) {
+            synchronized (segment) {
+                segment.mBuffer.evictBefore(minTimestamp);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : mSegments) {
+            synchronized (segment) {
+                segment.mBuffer.clear();
+            }
+
+            // Forget the buffers of threads that have finished, such as those from a previous test.
+            Thread owner = segment.mOwner.get();
+            if (owner == null || !owner.isAlive()) {
+                mSegments.remove(segment);
+            }
+        }
+    }
+
+    @Override
+    public int peakSize() {
+        int peakSize = 0;
+        for (Segment segment : mSegments) {
+            synchronized (segment) {
+                peakSize = Math.max(peakSize, segment.mBuffer.peakSize());
+            }
+        }
+        return peakSize;
+    }
+
+    @Override
+    public int capacity() {
+        int capacity = 0;
+        for (Segment segment : mSegments) {
+            synchronized (segment) {
+                capacity = Math.max(capacity, segment.mBuffer.capacity());
+            }
+        }
+        return capacity;
+    }
+
+    /**
+     * The buffer used by a single thread.
+     */
+    private static final class Segment {
+        private final WeakReference<Thread> mOwner;
+        private final BoundedLogRecordBuffer mBuffer;
+
+        Segment(Thread owner, BoundedLogRecordBuffer buffer) {
+            mOwner = new WeakReference<>(owner);
+            mBuffer = buffer;
+        }
+    }
+}
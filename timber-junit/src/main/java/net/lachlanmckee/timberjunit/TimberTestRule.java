@@ -1,17 +1,24 @@
 package net.lachlanmckee.timberjunit;
 
-import android.util.Log;
-
 import org.junit.rules.TestRule;
 import org.junit.runner.Description;
+import org.junit.runners.model.MultipleFailureException;
 import org.junit.runners.model.Statement;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import timber.log.Timber;
 
@@ -21,12 +28,63 @@ import timber.log.Timber;
  * <p>
  * This is useful as a planted {@link Timber.Tree} would exist between test classes, which may be
  * undesirable.
+ * <p>
+ * The rule may also be used as a {@link org.junit.ClassRule}, in which case a single tree is
+ * planted for the entire test class. The same instance must then also be used as a
+ * {@link org.junit.Rule}, so that the captured logs are flushed for each failing test and
+ * discarded between tests, avoiding the cost of planting a new tree for every test:
+ * <pre>
+ * &#64;ClassRule
+ * &#64;Rule
+ * public static final TimberTestRule timberTestRule = TimberTestRule.logAllWhenTestFails();
+ * </pre>
+ * <b>A rule used only as a class rule cannot see the failures of individual tests.</b> When
+ * {@link Rules#onlyLogWhenTestFails(boolean)} is enabled, the logs of failing tests are therefore
+ * not written, and only a failure of the test class itself, such as within a
+ * {@link org.junit.BeforeClass} method, writes the logs. A warning is written once the test
+ * class completes if this is the case.
  */
 public class TimberTestRule implements TestRule {
+    /**
+     * The store pools, shared by every rule with the same buffer configuration. JUnit creates a
+     * new rule for each test when it is not static, so the pools must outlive the rules.
+     */
+    private static final ConcurrentMap<List<Object>, LogRecordStorePool> STORE_POOLS =
+            new ConcurrentHashMap<>();
+
     private final Rules mRules;
+    private final LogFormatter mFormatter;
+    private final PriorityFilter mPriorityFilter;
+
+    /**
+     * The stores which are not currently used by a test, kept so that they can be reused.
+     */
+    private final LogRecordStorePool mStorePool;
+
+    /**
+     * The tree planted for the test class while the rule is used as a class rule.
+     */
+    private final AtomicReference<BufferedJUnitTimberTree> mClassTree;
+
+    /**
+     * The tree of the most recently started test or test class, used to query the captured logs.
+     */
+    private final AtomicReference<BufferedJUnitTimberTree> mActiveTree;
+
+    /**
+     * The metrics of the test class counted so far while the rule is used as a class rule.
+     */
+    private final AtomicReference<CaptureMetrics> mClassMetrics;
 
     private TimberTestRule(Rules rules) {
         mRules = rules;
+        mFormatter = LogFormatter.compile(rules.mPattern, rules.mShowTimestamp, rules.mShowThread);
+        mPriorityFilter = new PriorityFilter(rules.mMinPriority, rules.mTagMinPriorities,
+                rules.mTagPrefixMinPriorities, rules.mPackageMinPriorities);
+        mStorePool = storePool(rules);
+        mClassTree = new AtomicReference<>();
+        mActiveTree = new AtomicReference<>();
+        mClassMetrics = new AtomicReference<>(CaptureMetrics.NONE);
     }
 
     /**
@@ -54,7 +112,7 @@ public class TimberTestRule implements TestRule {
     public static TimberTestRule logErrorsAlways() {
         return new Rules()
                 .onlyLogWhenTestFails(false)
-                .minPriority(Log.ERROR)
+                .minPriority(LogPriority.ERROR)
                 .build();
     }
 
@@ -63,7 +121,7 @@ public class TimberTestRule implements TestRule {
      */
     public static TimberTestRule logErrorsWhenTestFails() {
         return new Rules()
-                .minPriority(Log.ERROR)
+                .minPriority(LogPriority.ERROR)
                 .build();
     }
 
@@ -76,7 +134,271 @@ public class TimberTestRule implements TestRule {
 
     @Override
     public Statement apply(Statement base, Description description) {
-        return new TimberStatement(base, mRules);
+        if (description.isSuite()) {
+            return new TimberStatement(base, description, this, true);
+        }
+
+        // Reuse the tree planted for the test class when the rule is also used as a class rule.
+        BufferedJUnitTimberTree classTree = mClassTree.get();
+        if (classTree != null) {
+            return new SharedTreeStatement(base, description, this, classTree);
+        }
+        return new TimberStatement(base, description, this, false);
+    }
+
+    /**
+     * Returns the logs captured by the running test so far, which can be queried and asserted
+     * upon without formatting the logs or intercepting the console.
+     * <p>
+     * Logs are captured when {@link Rules#onlyLogWhenTestFails(boolean)} or
+     * {@link Rules#retainLogs(boolean)} is enabled, and are subject to the buffer limits.
+     * When the rule is used as a class rule, the logs are those captured since the previous test
+     * completed.
+     *
+     * @return an immutable snapshot of the captured logs.
+     * @throws IllegalStateException if a test is not running, logs are not captured, or the logs
+     *                               spilled to disk could not be read.
+     */
+    public LogRecords logs() {
+        return logs(mActiveTree.get());
+    }
+
+    /**
+     * Starts capturing the logs of a single test, for test frameworks which cannot apply the rule,
+     * such as JUnit 5.
+     *
+     * @param description the description of the test, which is used to name failure log files and
+     *                    within budget warnings.
+     * @return the capture, which must be finished on the calling thread once the test completes.
+     */
+    public LogCapture startCapture(Description description) {
+        return new LogCapture(this, startCapture(false), description);
+    }
+
+    /**
+     * @param tree the tree of the running test, or null if a test is not running.
+     * @return an immutable snapshot of the logs captured by the tree.
+     * @see #logs()
+     */
+    LogRecords logs(BufferedJUnitTimberTree tree) {
+        if (!mRules.mOnlyLogWhenTestFails && !mRules.mRetainLogs) {
+            throw new IllegalStateException(
+                    "Logs are only captured when onlyLogWhenTestFails or retainLogs is enabled");
+        }
+        if (tree == null) {
+            throw new IllegalStateException("Logs can only be queried while a test is running");
+        }
+        return tree.snapshotLogs();
+    }
+
+    /**
+     * Plants a tree which captures the logs of a test, reusing the store of a previous test if
+     * one is available.
+     *
+     * @param isTestClass whether the tree is shared with the tests of a test class.
+     * @return the planted tree, which must be passed to {@link #finishCapture} once the test
+     * completes.
+     */
+    BufferedJUnitTimberTree startCapture(boolean isTestClass) {
+        LogRecordStore store = mStorePool.acquire();
+        BufferedJUnitTimberTree tree = new BufferedJUnitTimberTree(mRules, mFormatter,
+                mPriorityFilter, store);
+        store.setOwner(tree);
+        tree.plant();
+        if (isTestClass) {
+            mClassTree.set(tree);
+        }
+        mActiveTree.set(tree);
+        return tree;
+    }
+
+    /**
+     * Uproots a tree planted by {@link #startCapture(boolean)}, reports its metrics and discards
+     * its logs. This must be called on the thread which planted the tree.
+     *
+     * @param tree        the tree of the test.
+     * @param description the description of the test or test class.
+     * @param isTestClass whether the tree was shared with the tests of a test class.
+     * @throws IOException if the asynchronous logs could not be written.
+     */
+    void finishCapture(BufferedJUnitTimberTree tree, Description description, boolean isTestClass)
+            throws IOException {
+
+        mActiveTree.compareAndSet(tree, null);
+        if (isTestClass) {
+            mClassTree.set(null);
+        }
+
+        // Ensure the tree is removed to avoid duplicate logging.
+        tree.uproot();
+
+        try {
+            // Asynchronous logs are written before the next test starts.
+            tree.drainAsyncLogs();
+            reportMetrics(tree, description, isTestClass);
+
+        } finally {
+            // A thread may still be logging to the tree, so its records must be rejected before
+            // the store is cleared and reused by another test.
+            LogRecordStore store = tree.mLogRecordStore;
+            store.setOwner(null);
+            int peakSize = store.peakSize();
+            tree.clearLogs();
+            mStorePool.release(store, peakSize);
+        }
+    }
+
+    /**
+     * Checks whether a test which completed successfully logged more than its budgets allow,
+     * and writes a warning if so when {@link BudgetAction#WARN} is used.
+     *
+     * @param tree        the tree of the test.
+     * @param description the description of the test.
+     * @return the failure of the test when {@link BudgetAction#FAIL} is used and a budget was
+     * exceeded, otherwise null.
+     * @throws IOException if the warning could not be written.
+     */
+    AssertionError checkBudgets(BufferedJUnitTimberTree tree, Description description)
+            throws IOException {
+
+        if (tree.mCaptureCounters == null) {
+            return null;
+        }
+
+        StringBuilder message = new StringBuilder();
+        long recordCount = tree.mCaptureCounters.sum(CaptureCounters.CAPTURED);
+        if (recordCount > mRules.mMaxRecordsPerTest) {
+            message.append(description.getDisplayName())
+                    .append(" logged ")
+                    .append(recordCount)
+                    .append(" times, exceeding the budget of ")
+                    .append(mRules.mMaxRecordsPerTest);
+        }
+        long logNanos = tree.mCaptureCounters.sum(CaptureCounters.LOG_NANOS);
+        if (logNanos > mRules.mMaxLogNanosPerTest) {
+            message.append(message.length() == 0 ? description.getDisplayName() : ", and")
+                    .append(String.format(Locale.US,
+                            " spent %.3f ms logging, exceeding the budget of %.3f ms",
+                            logNanos / 1e6, mRules.mMaxLogNanosPerTest / 1e6));
+        }
+
+        if (message.length() == 0) {
+            return null;
+        }
+        if (mRules.mBudgetAction == BudgetAction.FAIL) {
+            return new AssertionError(message.toString());
+        }
+        tree.write("... " + message + " ..." + LogSinks.LINE_SEPARATOR);
+        return null;
+    }
+
+    /**
+     * Reports the metrics counted by the tree since they were last reported.
+     *
+     * @param tree        the tree of the test or test class.
+     * @param description the description of the test or test class.
+     * @param isTestClass whether the tree was shared with the tests of a test class, in which case
+     *                    the metrics of its tests are included.
+     */
+    private void reportMetrics(BufferedJUnitTimberTree tree, Description description,
+                               boolean isTestClass) {
+        if (tree.mCaptureCounters == null) {
+            return;
+        }
+
+        CaptureMetrics metrics = tree.mCaptureCounters.snapshotAndReset();
+        if (mRules.mPrintMetricsSummary) {
+            MetricsSummary.record(description.getClassName(), metrics);
+        }
+
+        if (isTestClass) {
+            CaptureMetrics classMetrics = mClassMetrics.getAndSet(CaptureMetrics.NONE);
+            if (mRules.mListener != null) {
+                mRules.mListener.testClassFinished(description, classMetrics.plus(metrics));
+            }
+            return;
+        }
+
+        if (tree == mClassTree.get()) {
+            addClassMetrics(metrics);
+        }
+        if (mRules.mListener != null) {
+            mRules.mListener.testFinished(description, metrics);
+        }
+    }
+
+    /**
+     * Attributes the metrics counted by the tree of the test class since the previous test to
+     * the test class, so that they are not reported as part of the next test.
+     */
+    private void startSharedTreeTest(BufferedJUnitTimberTree tree, Description description) {
+        if (tree.mCaptureCounters == null) {
+            return;
+        }
+
+        CaptureMetrics metrics = tree.mCaptureCounters.snapshotAndReset();
+        if (mRules.mPrintMetricsSummary) {
+            MetricsSummary.record(description.getClassName(), metrics);
+        }
+        addClassMetrics(metrics);
+    }
+
+    /**
+     * Warns when the rule was only used as a class rule while logs are only written for failing
+     * tests, as the failures of the individual tests could not be seen.
+     *
+     * @param tree        the tree of the test class.
+     * @param description the description of the test class.
+     * @throws IOException if the warning could not be written.
+     */
+    private void warnIfTestLogsWereHidden(BufferedJUnitTimberTree tree, Description description)
+            throws IOException {
+
+        if (!mRules.mOnlyLogWhenTestFails || tree.mSharedWithTests
+                || description.getChildren().isEmpty()) {
+            return;
+        }
+        tree.write("... TimberTestRule was only used as a @ClassRule by "
+                + description.getDisplayName() + ", so the logs of failing tests were not "
+                + "written. Use the same instance as a @Rule as well ..."
+                + LogSinks.LINE_SEPARATOR);
+    }
+
+    private void addClassMetrics(CaptureMetrics metrics) {
+        CaptureMetrics classMetrics;
+        do {
+            classMetrics = mClassMetrics.get();
+        } while (!mClassMetrics.compareAndSet(classMetrics, classMetrics.plus(metrics)));
+    }
+
+    private static LogRecordStorePool storePool(final Rules rules) {
+        List<Object> key = Arrays.<Object>asList(rules.mMaxInMemoryRecords, rules.mPerThreadBuffers,
+                rules.mMaxBufferedRecords, rules.mMaxBufferedBytes, rules.mOverflowPolicy,
+                rules.mRetentionMillis);
+        LogRecordStorePool pool = STORE_POOLS.get(key);
+        if (pool != null) {
+            return pool;
+        }
+
+        pool = new LogRecordStorePool(new LogRecordStorePool.Factory() {
+            @Override
+            public LogRecordStore create(int initialCapacity) {
+                if (rules.mMaxInMemoryRecords != Integer.MAX_VALUE) {
+                    return new SpillingLogRecordStore(rules.mMaxInMemoryRecords,
+                            initialCapacity);
+                }
+                if (rules.mPerThreadBuffers) {
+                    return new ThreadLocalLogRecordStore(rules.mMaxBufferedRecords,
+                            rules.mMaxBufferedBytes, rules.mOverflowPolicy,
+                            rules.mRetentionMillis, initialCapacity);
+                }
+                return new SynchronizedLogRecordStore(rules.mMaxBufferedRecords,
+                        rules.mMaxBufferedBytes, rules.mOverflowPolicy, rules.mRetentionMillis,
+                        initialCapacity);
+            }
+        });
+        LogRecordStorePool existing = STORE_POOLS.putIfAbsent(key, pool);
+        return existing != null ? existing : pool;
     }
 
     /**
@@ -86,21 +408,93 @@ public class TimberTestRule implements TestRule {
      * The types of rules applied are:
      * <ol>
      * <li>Min priority - What is the lowest level of log type that should be logged.</li>
+     * <li>Tag min priorities - The lowest level of log type logged for specific tags, tag
+     * prefixes or packages.</li>
      * <li>Show thread - Whether the Thread ID and name should be logged.</li>
      * <li>Show timestamp - Whether the current time should be logged.</li>
+     * <li>Timestamp precision - Whether the timestamp shows milliseconds or microseconds.</li>
+     * <li>Per thread buffers - Whether each thread buffers its logs separately.</li>
+     * <li>Buffer limits - How many logs may be buffered, and which are kept once full.</li>
+     * <li>Retention window - How long buffered logs are kept before they are discarded.</li>
+     * <li>Spill to disk - Whether buffered logs are moved to a temporary file.</li>
+     * <li>Failure log directory - Whether the logs of each failed test are written to a file.</li>
+     * <li>Tag strategy - How the tag is determined when a tag is not explicitly provided.</li>
+     * <li>Log sink - Where the logs are written.</li>
+     * <li>Async writes - Whether logs are written on a background thread.</li>
+     * <li>Isolate parallel tests - Whether logs are only captured by their own test.</li>
+     * <li>Retain logs - Whether logs are kept so they can be queried when always logging.</li>
+     * <li>Stack traces - How the stack traces of logged throwables are rendered.</li>
+     * <li>Metrics - Whether the work of capturing logs is measured and reported.</li>
+     * <li>Budgets - How much each test may log before a warning is written or it fails.</li>
      * </ol>
      */
     public static final class Rules {
         private int mMinPriority;
+        private final Map<String, Integer> mTagMinPriorities;
+        private final Map<String, Integer> mTagPrefixMinPriorities;
+        private final Map<String, Integer> mPackageMinPriorities;
         private boolean mShowThread;
         private boolean mShowTimestamp;
+        private String mPattern;
         private boolean mOnlyLogWhenTestFails;
+        private boolean mPerThreadBuffers;
+        private int mMaxBufferedRecords;
+        private long mMaxBufferedBytes;
+        private OverflowPolicy mOverflowPolicy;
+        private TagStrategy mTagStrategy;
+        private TimestampPrecision mTimestampPrecision;
+        private LogSink mLogSink;
+        private boolean mAsyncWrites;
+        private int mAsyncQueueCapacity;
+        private BackPressurePolicy mAsyncBackPressure;
+        private boolean mIsolateParallelTests;
+        private boolean mRetainLogs;
+        private int mMaxStackTraceFrames;
+        private boolean mCollapseCommonStackTraceFrames;
+        private boolean mDedupeStackTraces;
+        private int mMaxInMemoryRecords;
+        private File mFailureLogDirectory;
+        private boolean mCompressFailureLogs;
+        private Listener mListener;
+        private boolean mPrintMetricsSummary;
+        private int mMaxRecordsPerTest;
+        private long mMaxLogNanosPerTest;
+        private BudgetAction mBudgetAction;
+        private long mRetentionMillis;
 
         Rules() {
-            mMinPriority = Log.VERBOSE;
+            mMinPriority = LogPriority.VERBOSE;
+            mTagMinPriorities = new LinkedHashMap<>();
+            mTagPrefixMinPriorities = new LinkedHashMap<>();
+            mPackageMinPriorities = new LinkedHashMap<>();
             mShowThread = false;
             mShowTimestamp = true;
+            mPattern = null;
             mOnlyLogWhenTestFails = true;
+            mPerThreadBuffers = false;
+            mMaxBufferedRecords = Integer.MAX_VALUE;
+            mMaxBufferedBytes = Long.MAX_VALUE;
+            mOverflowPolicy = OverflowPolicy.KEEP_LAST;
+            mTagStrategy = TagStrategy.STACK_TRACE;
+            mTimestampPrecision = TimestampPrecision.MILLISECONDS;
+            mLogSink = LogSinks.stdout();
+            mAsyncWrites = false;
+            mAsyncQueueCapacity = 8192;
+            mAsyncBackPressure = BackPressurePolicy.BLOCK;
+            mIsolateParallelTests = false;
+            mRetainLogs = false;
+            mMaxStackTraceFrames = Integer.MAX_VALUE;
+            mCollapseCommonStackTraceFrames = false;
+            mDedupeStackTraces = false;
+            mMaxInMemoryRecords = Integer.MAX_VALUE;
+            mFailureLogDirectory = null;
+            mCompressFailureLogs = false;
+            mListener = null;
+            mPrintMetricsSummary = false;
+            mMaxRecordsPerTest = Integer.MAX_VALUE;
+            mMaxLogNanosPerTest = Long.MAX_VALUE;
+            mBudgetAction = BudgetAction.WARN;
+            mRetentionMillis = Long.MAX_VALUE;
         }
 
         /**
@@ -108,14 +502,15 @@ public class TimberTestRule implements TestRule {
          * <p>
          * This can be:
          * <ol>
-         * <li>{@link Log#VERBOSE}</li>
-         * <li>{@link Log#DEBUG}</li>
-         * <li>{@link Log#INFO}</li>
-         * <li>{@link Log#WARN}</li>
-         * <li>{@link Log#ERROR}</li>
+         * <li>{@link LogPriority#VERBOSE}</li>
+         * <li>{@link LogPriority#DEBUG}</li>
+         * <li>{@link LogPriority#INFO}</li>
+         * <li>{@link LogPriority#WARN}</li>
+         * <li>{@link LogPriority#ERROR}</li>
          * </ol>
+         * The equivalent {@code android.util.Log} constants may also be used.
          *
-         * @param minPriority the Android log priority.
+         * @param minPriority the log priority.
          * @return the mutated {@link Rules}
          */
         public Rules minPriority(int minPriority) {
@@ -123,6 +518,56 @@ public class TimberTestRule implements TestRule {
             return this;
         }
 
+        /**
+         * Defines the lowest level of log type that should be logged for a specific tag,
+         * overriding {@link #minPriority(int)} for that tag. This may be used to silence a noisy
+         * tag, or to log more of a tag of interest.
+         * <p>
+         * Logs are rejected before their message is formatted. The tag of a log without an explicit
+         * tag is only inferred when its priority could be logged for some tag.
+         *
+         * @param tag         the tag of the logs.
+         * @param minPriority the log priority.
+         * @return the mutated {@link Rules}
+         */
+        public Rules tagMinPriority(String tag, int minPriority) {
+            mTagMinPriorities.put(tag, minPriority);
+            return this;
+        }
+
+        /**
+         * Defines the lowest level of log type that should be logged for tags starting with a
+         * prefix, overriding {@link #minPriority(int)} for those tags. When several prefixes
+         * match a tag the longest applies, and {@link #tagMinPriority(String, int)} takes
+         * precedence over any prefix.
+         *
+         * @param tagPrefix   the prefix of the tags.
+         * @param minPriority the log priority.
+         * @return the mutated {@link Rules}
+         */
+        public Rules tagPrefixMinPriority(String tagPrefix, int minPriority) {
+            mTagPrefixMinPriorities.put(tagPrefix, minPriority);
+            return this;
+        }
+
+        /**
+         * Defines the lowest level of log type that should be logged by classes within a package,
+         * including its sub packages, overriding {@link #minPriority(int)} for those classes.
+         * When several packages contain the class the longest applies. The minimum priorities of
+         * tags and tag prefixes take precedence over any package.
+         * <p>
+         * The calling class is only found when the priority of a log could be rejected by a
+         * package.
+         *
+         * @param packageName the package of the classes, such as {@code "com.example.network"}.
+         * @param minPriority the log priority.
+         * @return the mutated {@link Rules}
+         */
+        public Rules packageMinPriority(String packageName, int minPriority) {
+            mPackageMinPriorities.put(packageName, minPriority);
+            return this;
+        }
+
         /**
          * Defines whether the Thread ID and name should be logged
          *
@@ -145,8 +590,46 @@ public class TimberTestRule implements TestRule {
             return this;
         }
 
+        /**
+         * Defines the layout of each log using a pattern, which overrides
+         * {@link #showTimestamp(boolean)} and {@link #showThread(boolean)}. The pattern is parsed
+         * once when the rule is built.
+         * <p>
+         * The pattern may contain the following placeholders:
+         * <ul>
+         * <li>{@code %time} - The timestamp.</li>
+         * <li>{@code %thread} - The thread ID and name.</li>
+         * <li>{@code %level} - The single letter priority.</li>
+         * <li>{@code %tag} - The tag.</li>
+         * <li>{@code %msg} - The message.</li>
+         * <li>{@code %%} - A percent sign.</li>
+         * </ul>
+         * For example, the default layout is {@code "%time %level/%tag: %msg"}.
+         *
+         * @param pattern the layout pattern, or null to use the default layout.
+         * @return the mutated {@link Rules}
+         */
+        public Rules pattern(String pattern) {
+            mPattern = pattern;
+            return this;
+        }
+
+        /**
+         * Defines the precision of the logged timestamp. By default milliseconds are shown.
+         *
+         * @param timestampPrecision the precision of the timestamp.
+         * @return the mutated {@link Rules}
+         */
+        public Rules timestampPrecision(TimestampPrecision timestampPrecision) {
+            mTimestampPrecision = timestampPrecision;
+            return this;
+        }
+
         /**
          * Defines whether the logs are only output if the unit test fails.
+         * <p>
+         * When the rule is used as a {@link org.junit.ClassRule}, it must also be used as a
+         * {@link org.junit.Rule} for the logs of failing tests to be output.
          *
          * @param onlyLogWhenTestFails whether the logs are only output when a test fails.
          * @return the mutated {@link Rules}
@@ -157,164 +640,1060 @@ public class TimberTestRule implements TestRule {
         }
 
         /**
-         * Builds the JUnit test rule based on the defined rules.
+         * Defines whether each thread buffers its logs separately when
+         * {@link #onlyLogWhenTestFails(boolean)} is enabled.
+         * <p>
+         * By default all threads share a single buffer, which is guarded by a lock. When many
+         * threads log concurrently this lock can be contended, altering the timing of the code
+         * under test. Per thread buffers avoid this contention, and are merged in the order the
+         * logs were created when the test fails.
          *
-         * @return a new JUnit test rule instance.
+         * @param perThreadBuffers whether each thread buffers its logs separately.
+         * @return the mutated {@link Rules}
          */
-        public TimberTestRule build() {
-            return new TimberTestRule(this);
+        public Rules perThreadBuffers(boolean perThreadBuffers) {
+            mPerThreadBuffers = perThreadBuffers;
+            return this;
         }
-    }
-
-    /**
-     * The JUnit statement that plants before the unit test, and uproots it after completion.
-     */
-    private static class TimberStatement extends Statement {
-        private final Statement mNext;
-        private final BufferedJUnitTimberTree mTree;
 
-        TimberStatement(Statement base, Rules rules) {
-            mNext = base;
-            mTree = new BufferedJUnitTimberTree(rules);
+        /**
+         * Defines the maximum number of logs that are buffered when
+         * {@link #onlyLogWhenTestFails(boolean)} is enabled. Once the limit is reached, logs are
+         * discarded as defined by the {@link #overflowPolicy(OverflowPolicy)}.
+         * <p>
+         * When {@link #perThreadBuffers(boolean)} is enabled, the limit applies to each thread.
+         *
+         * @param maxBufferedRecords the maximum number of buffered logs.
+         * @return the mutated {@link Rules}
+         */
+        public Rules maxBufferedRecords(int maxBufferedRecords) {
+            mMaxBufferedRecords = maxBufferedRecords;
+            return this;
         }
 
-        @Override
-        public void evaluate() throws Throwable {
-            Timber.plant(mTree);
-            try {
-                mNext.evaluate();
-
-            } catch (Throwable t) {
-                mTree.flushLogs();
-                throw t;
-
-            } finally {
-                // Ensure the tree is removed to avoid duplicate logging.
-                Timber.uproot(mTree);
-            }
+        /**
+         * Defines the maximum estimated size, in bytes, of the tags and messages that are
+         * buffered when {@link #onlyLogWhenTestFails(boolean)} is enabled. Once the limit is
+         * reached, logs are discarded as defined by the {@link #overflowPolicy(OverflowPolicy)}.
+         * <p>
+         * When {@link #perThreadBuffers(boolean)} is enabled, the limit applies to each thread.
+         *
+         * @param maxBufferedBytes the maximum size of the buffered logs.
+         * @return the mutated {@link Rules}
+         */
+        public Rules maxBufferedBytes(long maxBufferedBytes) {
+            mMaxBufferedBytes = maxBufferedBytes;
+            return this;
         }
-    }
 
-    /**
-     * A Timber tree that logs to the Java System.out rather than using the Android logger.
-     */
-    private static final class BufferedJUnitTimberTree extends Timber.DebugTree {
-        private final Rules mRules;
-        private final List<String> mLogMessageBuffer;
-        private final Object bufferLock = new Object();
-
-        BufferedJUnitTimberTree(Rules rules) {
-            mRules = rules;
-            mLogMessageBuffer = new ArrayList<>();
+        /**
+         * Defines which logs are kept once a buffer limit has been reached. By default the most
+         * recent logs are kept.
+         *
+         * @param overflowPolicy the policy used when a buffer limit is reached.
+         * @return the mutated {@link Rules}
+         */
+        public Rules overflowPolicy(OverflowPolicy overflowPolicy) {
+            mOverflowPolicy = overflowPolicy;
+            return this;
         }
 
-        @Override
-        protected void log(int priority, String tag, String message, Throwable t) {
-            String logMessage = createLogMessage(mRules, priority, tag, message);
-            if (logMessage == null) {
-                return;
-            }
-
-            if (mRules.mOnlyLogWhenTestFails) {
-                synchronized (bufferLock) {
-                    mLogMessageBuffer.add(logMessage);
-                }
-
-            } else {
-                System.out.println(logMessage);
-            }
+        /**
+         * Defines how long buffered logs are kept, so that only the logs created shortly before a
+         * test fails are written. Older logs are discarded as new logs are buffered, which keeps
+         * the memory of long running tests constant, and the number of discarded logs is written
+         * in their place. By default logs are kept for the duration of the test.
+         * <p>
+         * The first logs kept by {@link OverflowPolicy#KEEP_FIRST} and
+         * {@link OverflowPolicy#KEEP_FIRST_AND_LAST} are never discarded.
+         *
+         * @param retentionWindow the time each buffered log is kept.
+         * @param unit            the unit of the time.
+         * @return the mutated {@link Rules}
+         */
+        public Rules retentionWindow(long retentionWindow, TimeUnit unit) {
+            mRetentionMillis = unit.toMillis(retentionWindow);
+            return this;
         }
 
         /**
-         * Flushes all the previously stored log messages.
+         * Defines the maximum number of logs that are buffered in memory when
+         * {@link #onlyLogWhenTestFails(boolean)} is enabled. Once the limit is reached, the
+         * buffered logs are moved to a temporary file, which is read back if the test fails and
+         * deleted once the test completes. This keeps the memory used by tests which log
+         * heavily constant, while still keeping every log.
+         * <p>
+         * The throwables of spilled logs are kept in memory. Spilling keeps every log, so it
+         * cannot be combined with the buffer limits, {@link #retentionWindow(long, TimeUnit)} or
+         * {@link #perThreadBuffers(boolean)}.
+         *
+         * @param maxInMemoryRecords the number of logs buffered in memory before they are moved to
+         *                           a temporary file.
+         * @return the mutated {@link Rules}
          */
-        private void flushLogs() {
-            synchronized (bufferLock) {
-                Iterator<String> iterator = mLogMessageBuffer.iterator();
-                while (iterator.hasNext()) {
-                    System.out.println(iterator.next());
-                    iterator.remove();
-                }
-            }
+        public Rules spillToDisk(int maxInMemoryRecords) {
+            mMaxInMemoryRecords = maxInMemoryRecords;
+            return this;
         }
-    }
 
-    /**
-     * Creates a log message based on the rules and Timber log details.
-     *
-     * @param rules    the rules used to construct the message.
-     * @param priority the priority of the log.
-     * @param tag      the tag of the log.
-     * @param message  the message of the log.
-     * @return a log message (may be null).
-     */
-    private static String createLogMessage(Rules rules, int priority, String tag, String message) {
-        // Avoid logging if the priority is too low.
-        if (priority < rules.mMinPriority) {
-            return null;
+        /**
+         * Defines a directory that the logs of each failed test are written to when
+         * {@link #onlyLogWhenTestFails(boolean)} is enabled, rather than the
+         * {@link #logSink(LogSink)}. Each test has its own file, named from its class and method,
+         * and a single line stating the location of the file is written to the sink instead.
+         * <p>
+         * This keeps large logs out of the console output, which build tools such as Gradle
+         * include in their test reports. For example, {@code new File("build/test-logs")}.
+         *
+         * @param failureLogDirectory the directory of the files, or null to write the logs to the
+         *                            sink.
+         * @return the mutated {@link Rules}
+         */
+        public Rules failureLogDirectory(File failureLogDirectory) {
+            mFailureLogDirectory = failureLogDirectory;
+            return this;
         }
 
-        // Obtain the correct log type prefix.
-        final char type;
-        switch (priority) {
-            case Log.VERBOSE:
-                type = 'V';
-                break;
-
-            case Log.DEBUG:
-                type = 'D';
-                break;
-
-            case Log.INFO:
-                type = 'I';
-                break;
-
-            case Log.WARN:
-                type = 'W';
-                break;
-
-            case Log.ERROR:
-            default:
-                type = 'E';
-                break;
+        /**
+         * Defines whether the files written to the {@link #failureLogDirectory(File)} are
+         * compressed using gzip. By default they are not compressed.
+         *
+         * @param compressFailureLogs whether the files are compressed.
+         * @return the mutated {@link Rules}
+         */
+        public Rules compressFailureLogs(boolean compressFailureLogs) {
+            mCompressFailureLogs = compressFailureLogs;
+            return this;
         }
 
-        StringBuilder logBuilder = new StringBuilder();
-
-        if (rules.mShowTimestamp) {
-            logBuilder
-                    .append(THREAD_LOCAL_FORMAT.get().format(System.currentTimeMillis()))
-                    .append(" ");
+        /**
+         * Defines how the tag of a log is determined when a tag has not been explicitly provided
+         * using {@link Timber#tag(String)}. By default the stack trace is used, in the same way as
+         * {@link Timber.DebugTree}.
+         *
+         * @param tagStrategy the strategy used to determine tags.
+         * @return the mutated {@link Rules}
+         */
+        public Rules tagStrategy(TagStrategy tagStrategy) {
+            mTagStrategy = tagStrategy;
+            return this;
         }
 
-        if (rules.mShowThread) {
-            Thread thread = Thread.currentThread();
-            logBuilder
-                    .append(thread.getId())
-                    .append("/")
-                    .append(thread.getName())
-                    .append(" ");
+        /**
+         * Defines where the logs are written. By default logs are written to {@link System#out}.
+         *
+         * @param logSink the sink that receives the logs.
+         * @return the mutated {@link Rules}
+         * @see LogSinks
+         */
+        public Rules logSink(LogSink logSink) {
+            mLogSink = logSink;
+            return this;
         }
 
-        logBuilder
-                .append(type)
-                .append("/")
-                .append(tag)
-                .append(": ")
-                .append(message);
-
-        return logBuilder.toString();
-    }
+        /**
+         * Defines whether logs are formatted and written on a background thread when
+         * {@link #onlyLogWhenTestFails(boolean)} is disabled, rather than blocking the logging
+         * thread on I/O.
+         * <p>
+         * Every log of a test is written before the test completes, in the order it was logged.
+         *
+         * @param asyncWrites whether logs are written on a background thread.
+         * @return the mutated {@link Rules}
+         */
+        public Rules asyncWrites(boolean asyncWrites) {
+            mAsyncWrites = asyncWrites;
+            return this;
+        }
+
+        /**
+         * Defines the maximum number of logs waiting to be written when
+         * {@link #asyncWrites(boolean)} is enabled.
+         *
+         * @param asyncQueueCapacity the maximum number of logs waiting to be written.
+         * @return the mutated {@link Rules}
+         */
+        public Rules asyncQueueCapacity(int asyncQueueCapacity) {
+            mAsyncQueueCapacity = asyncQueueCapacity;
+            return this;
+        }
+
+        /**
+         * Defines what happens when a log is created while the queue of logs waiting to be
+         * written is full. By default the logging thread waits for space.
+         *
+         * @param asyncBackPressure the policy used when the queue is full.
+         * @return the mutated {@link Rules}
+         */
+        public Rules asyncBackPressure(BackPressurePolicy asyncBackPressure) {
+            mAsyncBackPressure = asyncBackPressure;
+            return this;
+        }
+
+        /**
+         * Defines whether each log is only captured by the test which created it, allowing tests
+         * to run in parallel within the same JVM.
+         * <p>
+         * By default every test plants its own tree, so a test running in parallel with other
+         * tests also captures their logs. When enabled, a single shared tree is planted instead,
+         * and each log is routed to the test running on the logging thread, or on the thread which
+         * created the logging thread. Logs from threads which are not associated with a test are
+         * captured by every running test.
+         *
+         * @param isolateParallelTests whether logs are only captured by their own test.
+         * @return the mutated {@link Rules}
+         */
+        public Rules isolateParallelTests(boolean isolateParallelTests) {
+            mIsolateParallelTests = isolateParallelTests;
+            return this;
+        }
+
+        /**
+         * Defines whether logs are kept for the duration of the test when
+         * {@link #onlyLogWhenTestFails(boolean)} is disabled, so that they can be queried using
+         * {@link TimberTestRule#logs()}. Logs are always kept when only logging failed tests.
+         *
+         * @param retainLogs whether logs are kept when always logging.
+         * @return the mutated {@link Rules}
+         */
+        public Rules retainLogs(boolean retainLogs) {
+            mRetainLogs = retainLogs;
+            return this;
+        }
+
+        /**
+         * Defines the maximum number of stack trace frames rendered for each logged throwable,
+         * including its causes. By default every frame is rendered.
+         *
+         * @param maxStackTraceFrames the maximum number of frames of each throwable.
+         * @return the mutated {@link Rules}
+         */
+        public Rules maxStackTraceFrames(int maxStackTraceFrames) {
+            mMaxStackTraceFrames = maxStackTraceFrames;
+            return this;
+        }
+
+        /**
+         * Defines whether the frames a stack trace has in common with the previously rendered
+         * stack trace are collapsed into a single line. This removes the test framework frames
+         * which are typically shared by every stack trace.
+         *
+         * @param collapseCommonStackTraceFrames whether common frames are collapsed.
+         * @return the mutated {@link Rules}
+         */
+        public Rules collapseCommonStackTraceFrames(boolean collapseCommonStackTraceFrames) {
+            mCollapseCommonStackTraceFrames = collapseCommonStackTraceFrames;
+            return this;
+        }
+
+        /**
+         * Defines whether a stack trace which is identical to a previously rendered stack trace
+         * within the same test is replaced by a single line, such as when an exception is logged
+         * repeatedly within a retry loop.
+         *
+         * @param dedupeStackTraces whether identical stack traces are only rendered once.
+         * @return the mutated {@link Rules}
+         */
+        public Rules dedupeStackTraces(boolean dedupeStackTraces) {
+            mDedupeStackTraces = dedupeStackTraces;
+            return this;
+        }
+
+        /**
+         * Defines a listener which receives the {@link CaptureMetrics} of each test, such as the
+         * number of logs captured and the time spent formatting them. By default metrics are not
+         * measured.
+         *
+         * @param listener the listener, or null to not receive metrics.
+         * @return the mutated {@link Rules}
+         */
+        public Rules listener(Listener listener) {
+            mListener = listener;
+            return this;
+        }
+
+        /**
+         * Defines whether the {@link CaptureMetrics} of every test class are printed to
+         * {@link System#err} when the JVM exits, ordered by the time spent formatting and flushing
+         * logs. This finds the test classes whose logging dominates their runtime.
+         *
+         * @param printMetricsSummary whether a summary of the metrics is printed.
+         * @return the mutated {@link Rules}
+         */
+        public Rules printMetricsSummary(boolean printMetricsSummary) {
+            mPrintMetricsSummary = printMetricsSummary;
+            return this;
+        }
+
+        /**
+         * Defines the maximum number of logs each test may create, which catches code that logs
+         * excessively. Only logs with a priority that is logged are counted. By default the
+         * number of logs is unlimited.
+         *
+         * @param maxRecordsPerTest the maximum number of logs of each test.
+         * @return the mutated {@link Rules}
+         * @see #budgetAction(BudgetAction)
+         */
+        public Rules maxRecordsPerTest(int maxRecordsPerTest) {
+            mMaxRecordsPerTest = maxRecordsPerTest;
+            return this;
+        }
+
+        /**
+         * Defines the maximum time each test may spend logging, measured from when the tree
+         * receives each log until it has been captured or written. By default the time is
+         * unlimited.
+         *
+         * @param maxLogTimePerTest the maximum time spent logging by each test.
+         * @param unit              the unit of the time.
+         * @return the mutated {@link Rules}
+         * @see #budgetAction(BudgetAction)
+         */
+        public Rules maxLogTimePerTest(long maxLogTimePerTest, TimeUnit unit) {
+            mMaxLogNanosPerTest = unit.toNanos(maxLogTimePerTest);
+            return this;
+        }
+
+        /**
+         * Defines what happens when a test exceeds {@link #maxRecordsPerTest(int)} or
+         * {@link #maxLogTimePerTest(long, TimeUnit)}. By default a warning is written.
+         *
+         * @param budgetAction the action taken when a budget is exceeded.
+         * @return the mutated {@link Rules}
+         */
+        public Rules budgetAction(BudgetAction budgetAction) {
+            mBudgetAction = budgetAction;
+            return this;
+        }
+
+        /**
+         * Builds the JUnit test rule based on the defined rules.
+         *
+         * @return a new JUnit test rule instance.
+         * @throws IllegalArgumentException if the pattern is invalid, or logs are spilled to disk
+         *                                  while the buffer limits, retention window or per thread
+         *                                  buffers are used.
+         */
+        public TimberTestRule build() {
+            if (mMaxInMemoryRecords != Integer.MAX_VALUE && (mPerThreadBuffers
+                    || mMaxBufferedRecords != Integer.MAX_VALUE
+                    || mMaxBufferedBytes != Long.MAX_VALUE
+                    || mRetentionMillis != Long.MAX_VALUE)) {
+                throw new IllegalArgumentException("spillToDisk cannot be combined with "
+                        + "perThreadBuffers, maxBufferedRecords, maxBufferedBytes or "
+                        + "retentionWindow");
+            }
+            return new TimberTestRule(this);
+        }
+    }
+
+    /**
+     * Receives the {@link CaptureMetrics} of tests, see {@link Rules#listener(Listener)}.
+     * <p>
+     * The methods are called on the thread which executed the test, once its logs have been
+     * written.
+     */
+    public interface Listener {
+        /**
+         * Called when a test completes.
+         *
+         * @param description the description of the test.
+         * @param metrics     the metrics of the logs created during the test.
+         */
+        void testFinished(Description description, CaptureMetrics metrics);
+
+        /**
+         * Called when a test class completes, when the rule is used as a
+         * {@link org.junit.ClassRule}.
+         *
+         * @param description the description of the test class.
+         * @param metrics     the combined metrics of the tests of the class, and of the logs
+         *                    created outside of its tests.
+         */
+        void testClassFinished(Description description, CaptureMetrics metrics);
+    }
+
+    /**
+     * Defines which logs are kept when the maximum number of buffered logs has been reached.
+     * <p>
+     * The discarded logs are replaced by a single line stating how many logs were discarded.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The oldest logs are discarded to make room for new logs.
+         */
+        KEEP_LAST,
+
+        /**
+         * New logs are discarded once the buffer is full.
+         */
+        KEEP_FIRST,
+
+        /**
+         * The first half of the buffer keeps the oldest logs, and the second half keeps the most
+         * recent logs.
+         */
+        KEEP_FIRST_AND_LAST
+    }
+
+    /**
+     * Defines what happens when a log is created while the queue of logs waiting to be written
+     * asynchronously is full.
+     */
+    public enum BackPressurePolicy {
+        /**
+         * The logging thread waits until there is space in the queue.
+         */
+        BLOCK,
+
+        /**
+         * The log is silently dropped.
+         */
+        DROP,
+
+        /**
+         * The log is dropped, and the number of dropped logs is written once the test completes.
+         */
+        DROP_AND_COUNT
+    }
+
+    /**
+     * Defines what happens when a test logs more than its budget allows.
+     */
+    public enum BudgetAction {
+        /**
+         * A warning is written to the log sink once the test completes.
+         */
+        WARN,
+
+        /**
+         * The test fails once it completes, and its logs are written.
+         */
+        FAIL
+    }
+
+    /**
+     * Defines the precision of logged timestamps.
+     */
+    public enum TimestampPrecision {
+        /**
+         * The timestamp is shown as {@code HH:mm:ss:SSSSSSS}, where the final digits are the
+         * zero padded milliseconds.
+         */
+        MILLISECONDS,
+
+        /**
+         * The timestamp is shown as {@code HH:mm:ss.SSSSSS}, where the final digits are the
+         * microseconds. The microseconds are measured using {@link System#nanoTime()}.
+         */
+        MICROSECONDS
+    }
+
+    /**
+     * Defines how the tag of a log is determined when a tag has not been explicitly provided.
+     */
+    public enum TagStrategy {
+        /**
+         * The tag is the name of the calling class, found by walking the stack trace of every log.
+         * This matches the behaviour of {@link Timber.DebugTree}.
+         */
+        STACK_TRACE,
+
+        /**
+         * Only tags provided using {@link Timber#tag(String)} are used, which avoids inspecting
+         * the stack entirely. Logs without an explicit tag have an empty tag. This is the
+         * cheapest strategy, as walking the stack trace dominates the cost of a log.
+         */
+        EXPLICIT_ONLY
+    }
+
+    /**
+     * The JUnit statement that plants before the unit test, and uproots it after completion.
+     */
+    private static class TimberStatement extends Statement {
+        private final Statement mNext;
+        private final Description mDescription;
+        private final TimberTestRule mRule;
+        private final boolean mIsTestClass;
+
+        /**
+         * @param isTestClass whether the statement evaluates an entire test class, in which case
+         *                    the planted tree is shared with the tests of the class.
+         */
+        TimberStatement(Statement base, Description description, TimberTestRule rule,
+                        boolean isTestClass) {
+            mNext = base;
+            mDescription = description;
+            mRule = rule;
+            mIsTestClass = isTestClass;
+        }
+
+        @Override
+        public void evaluate() throws Throwable {
+            BufferedJUnitTimberTree tree = mRule.startCapture(mIsTestClass);
+            try {
+                mNext.evaluate();
+                if (!mIsTestClass) {
+                    throwIfNotNull(mRule.checkBudgets(tree, mDescription));
+                } else {
+                    mRule.warnIfTestLogsWereHidden(tree, mDescription);
+                }
+
+            } catch (Throwable t) {
+                tree.flushLogsAndRethrow(t, mDescription);
+
+            } finally {
+                mRule.finishCapture(tree, mDescription, mIsTestClass);
+            }
+        }
+    }
+
+    private static void throwIfNotNull(AssertionError failure) {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * The JUnit statement used for each test when a tree has already been planted for the test
+     * class. The tree is left planted, and only the logs captured during the test are flushed or
+     * discarded.
+     */
+    private static final class SharedTreeStatement extends Statement {
+        private final Statement mNext;
+        private final Description mDescription;
+        private final TimberTestRule mRule;
+        private final BufferedJUnitTimberTree mTree;
+
+        SharedTreeStatement(Statement base, Description description, TimberTestRule rule,
+                            BufferedJUnitTimberTree tree) {
+            mNext = base;
+            mDescription = description;
+            mRule = rule;
+            mTree = tree;
+        }
+
+        @Override
+        public void evaluate() throws Throwable {
+            mTree.mSharedWithTests = true;
+            mRule.startSharedTreeTest(mTree, mDescription);
+
+            // The test may run on a different thread to the test class.
+            LogRouter.Capture previousOwner = mTree.setOwner();
+            try {
+                mNext.evaluate();
+                throwIfNotNull(mRule.checkBudgets(mTree, mDescription));
+
+            } catch (Throwable t) {
+                mTree.flushLogsAndRethrow(t, mDescription);
+
+            } finally {
+                mTree.restoreOwner(previousOwner);
+
+                try {
+                    mTree.drainAsyncLogs();
+                    mRule.reportMetrics(mTree, mDescription, false);
+
+                } finally {
+                    // Logs created between tests are attributed to the next test.
+                    mTree.clearLogs();
+                }
+            }
+        }
+    }
 
     /**
-     * A thread local is used as the {@link DateFormat} class is not thread-safe.
+     * A Timber tree that logs to a {@link LogSink} rather than using the Android logger.
      */
-    private static final ThreadLocal<DateFormat> THREAD_LOCAL_FORMAT =
-            new ThreadLocal<DateFormat>() {
-                @Override
-                protected DateFormat initialValue() {
-                    return new SimpleDateFormat("HH:mm:ss:SSSSSSS", Locale.ENGLISH);
+    static final class BufferedJUnitTimberTree extends DeferredThrowableTree
+            implements AsyncLogWriter.Target, LogRouter.Capture {
+
+        private static final int INITIAL_LOG_BUILDER_CAPACITY = 256;
+        private static final int MAX_REUSED_LOG_BUILDER_CAPACITY = 8192;
+        private static final int FLUSH_CHUNK_SIZE = 64 * 1024;
+        private static final ThreadLocal<StringBuilder> LOG_BUILDERS = new ThreadLocal<>();
+
+        private final Rules mRules;
+        final LogRecordStore mLogRecordStore;
+        private final LogFormatter mFormatter;
+        private final PriorityFilter mPriorityFilter;
+        private final TimestampFormatter mTimestampFormatter;
+        private final StackTraceRenderer mStackTraceRenderer;
+        private final AsyncLogWriter.Mailbox mAsyncMailbox;
+        private final AtomicInteger mDroppedLogCount = new AtomicInteger();
+        private final CaptureCounters mCaptureCounters;
+        private LogRouter.Capture mPreviousOwner;
+
+        /**
+         * Whether a test used the tree while the rule was used as a class rule.
+         */
+        private volatile boolean mSharedWithTests;
+
+        /**
+         * Passes the decision of {@link #isLoggable(String, int)} to the log which follows it on
+         * the same thread, so that the filter is not evaluated twice for the same log.
+         */
+        private final ThreadLocal<FilterDecision> mFilterDecision =
+                new ThreadLocal<FilterDecision>() {
+                    @Override
+                    protected FilterDecision initialValue() {
+                        return new FilterDecision();
+                    }
+                };
+
+        BufferedJUnitTimberTree(Rules rules, LogFormatter formatter,
+                                PriorityFilter priorityFilter, LogRecordStore logRecordStore) {
+            mRules = rules;
+            mFormatter = formatter;
+            mPriorityFilter = priorityFilter;
+            mLogRecordStore = logRecordStore;
+            mTimestampFormatter = new TimestampFormatter(rules.mTimestampPrecision);
+            mStackTraceRenderer = new StackTraceRenderer(rules.mMaxStackTraceFrames,
+                    rules.mCollapseCommonStackTraceFrames, rules.mDedupeStackTraces);
+
+            if (rules.mAsyncWrites && !rules.mOnlyLogWhenTestFails) {
+                mAsyncMailbox = AsyncLogWriter.createMailbox(this, rules.mAsyncQueueCapacity);
+            } else {
+                mAsyncMailbox = null;
+            }
+
+            // Metrics are only counted when they are used, as timing each log is not free.
+            if (rules.mListener != null || rules.mPrintMetricsSummary
+                    || rules.mMaxRecordsPerTest != Integer.MAX_VALUE
+                    || rules.mMaxLogNanosPerTest != Long.MAX_VALUE) {
+                mCaptureCounters = new CaptureCounters();
+            } else {
+                mCaptureCounters = null;
+            }
+        }
+
+        /**
+         * Plants the tree, or registers it with the {@link LogRouter} when parallel tests are
+         * isolated.
+         */
+        private void plant() {
+            if (mRules.mIsolateParallelTests) {
+                LogRouter.register(this);
+                mPreviousOwner = setOwner();
+            } else {
+                Timber.plant(this);
+            }
+        }
+
+        /**
+         * Reverses {@link #plant()}. This must be called on the thread which planted the tree.
+         */
+        private void uproot() {
+            if (mRules.mIsolateParallelTests) {
+                restoreOwner(mPreviousOwner);
+                LogRouter.unregister(this);
+            } else {
+                Timber.uproot(this);
+            }
+        }
+
+        /**
+         * Associates the current thread with the tree when parallel tests are isolated.
+         *
+         * @return the previous owner of the thread.
+         */
+        private LogRouter.Capture setOwner() {
+            return mRules.mIsolateParallelTests ? LogRouter.setOwner(this) : null;
+        }
+
+        private void restoreOwner(LogRouter.Capture previousOwner) {
+            if (mRules.mIsolateParallelTests) {
+                LogRouter.restoreOwner(previousOwner);
+            }
+        }
+
+        /**
+         * Rejects logs before Timber formats their message. A log without an explicit tag is
+         * accepted if its priority could be logged for some tag, as the tag has not been inferred.
+         */
+        @Override
+        public boolean isLoggable(String tag, int priority) {
+            boolean loggable;
+            if (tag != null) {
+                loggable = mPriorityFilter.accepts(tag, priority);
+                mFilterDecision.get().decide(tag, priority, loggable);
+            } else {
+                loggable = mPriorityFilter.mayAccept(priority);
+                mFilterDecision.get().clear();
+            }
+            if (!loggable) {
+                count(CaptureCounters.REJECTED, 1);
+            }
+            return loggable;
+        }
+
+        @Override
+        public void capture(int priority, String tag, String message, Throwable t) {
+            logRecord(priority, tag, message, t);
+        }
+
+        @Override
+        protected void logRecord(int priority, String tag, String message, Throwable t) {
+            long startNanos = startTiming();
+            try {
+                captureRecord(priority, tag, message, t);
+
+            } finally {
+                finishTiming(CaptureCounters.LOG_NANOS, startNanos);
+            }
+        }
+
+        private void captureRecord(int priority, String tag, String message, Throwable t) {
+            int decision = mFilterDecision.get().take(tag, priority);
+            if (decision == FilterDecision.REJECTED) {
+                // The rejection was already counted by isLoggable.
+                return;
+            }
+
+            if (decision == FilterDecision.UNDECIDED) {
+                // Avoid logging if the priority is too low.
+                if (!mPriorityFilter.mayAccept(priority)) {
+                    count(CaptureCounters.REJECTED, 1);
+                    return;
+                }
+
+                // The tag is only inferred once the log is known to be required, as it is
+                // expensive.
+                if (tag == null) {
+                    tag = inferTag(mRules.mTagStrategy);
+                }
+                if (!mPriorityFilter.accepts(tag, priority)) {
+                    count(CaptureCounters.REJECTED, 1);
+                    return;
                 }
-            };
+            }
+            count(CaptureCounters.CAPTURED, 1);
+
+            long timestamp = System.currentTimeMillis();
+            long nanoTime = 0;
+            if (mRules.mPerThreadBuffers
+                    || (mFormatter.showsTimestamp() && mTimestampFormatter.requiresNanoTime())) {
+                nanoTime = System.nanoTime();
+            }
+            Thread thread = Thread.currentThread();
+            long threadId = thread.getId();
+            String threadName = thread.getName();
 
+            if (mRules.mOnlyLogWhenTestFails || mRules.mRetainLogs) {
+                // The message is only formatted when written, as most buffered logs are discarded.
+                mLogRecordStore.add(this, priority, tag, message, t, timestamp, nanoTime,
+                        threadId, threadName);
+                count(CaptureCounters.BUFFERED_BYTES, LogRecordBuffer.estimateBytes(tag, message));
+            }
+
+            if (mRules.mOnlyLogWhenTestFails) {
+                // The logs are only written if the test fails.
+                return;
+            }
+
+            if (mAsyncMailbox != null) {
+                boolean block = mRules.mAsyncBackPressure == BackPressurePolicy.BLOCK;
+                if (!mAsyncMailbox.enqueue(priority, tag, message, t, timestamp, nanoTime,
+                        threadId, threadName, block)) {
+                    mDroppedLogCount.incrementAndGet();
+                }
+
+            } else {
+                // The builder of each thread is reused, as the sink does not retain the text.
+                StringBuilder logBuilder = LOG_BUILDERS.get();
+                if (logBuilder == null) {
+                    logBuilder = new StringBuilder(INITIAL_LOG_BUILDER_CAPACITY);
+                    LOG_BUILDERS.set(logBuilder);
+                }
+                logBuilder.setLength(0);
+                logBuilder.ensureCapacity(mFormatter.estimateLength(tag, message)
+                        + LogSinks.LINE_SEPARATOR.length());
+                appendLog(logBuilder, priority, tag, message, t, timestamp, nanoTime, threadId,
+                        threadName);
+
+                try {
+                    write(logBuilder);
+
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unable to write log", e);
+
+                } finally {
+                    // Avoid retaining the memory of an unusually large log.
+                    if (logBuilder.capacity() > MAX_REUSED_LOG_BUILDER_CAPACITY) {
+                        LOG_BUILDERS.remove();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void appendLog(StringBuilder builder, int priority, String tag, String message,
+                              Throwable throwable, long timestamp, long nanoTime, long threadId,
+                              String threadName) {
+            long startNanos = startTiming();
+            mFormatter.append(builder, mTimestampFormatter, priority, tag, message, throwable,
+                    mStackTraceRenderer, timestamp, nanoTime, threadId, threadName);
+            builder.append(LogSinks.LINE_SEPARATOR);
+            finishTiming(CaptureCounters.FORMAT_NANOS, startNanos);
+        }
+
+        @Override
+        public void write(CharSequence text) throws IOException {
+            long startNanos = startTiming();
+            try {
+                mRules.mLogSink.write(text);
+
+            } finally {
+                finishTiming(CaptureCounters.FLUSH_NANOS, startNanos);
+            }
+        }
+
+        private void count(int counter, long delta) {
+            if (mCaptureCounters != null) {
+                mCaptureCounters.add(counter, delta);
+            }
+        }
+
+        private long startTiming() {
+            return mCaptureCounters != null ? System.nanoTime() : 0;
+        }
+
+        private void finishTiming(int counter, long startNanos) {
+            if (mCaptureCounters != null) {
+                mCaptureCounters.add(counter, System.nanoTime() - startNanos);
+            }
+        }
+
+        /**
+         * Waits until every asynchronous log has been written, and then writes the number of logs
+         * which were dropped if required.
+         */
+        private void drainAsyncLogs() throws IOException {
+            if (mAsyncMailbox == null) {
+                return;
+            }
+            mAsyncMailbox.drain();
+
+            int droppedLogCount = mDroppedLogCount.getAndSet(0);
+            if (droppedLogCount > 0
+                    && mRules.mAsyncBackPressure == BackPressurePolicy.DROP_AND_COUNT) {
+                write("... " + droppedLogCount + " logs were dropped ..."
+                        + LogSinks.LINE_SEPARATOR);
+            }
+        }
+
+        /**
+         * Infers the tag of a log which does not have an explicit tag.
+         */
+        private static String inferTag(TagStrategy tagStrategy) {
+            switch (tagStrategy) {
+                case EXPLICIT_ONLY:
+                    return "";
+
+                case STACK_TRACE:
+                default:
+                    return CallSiteTags.fromStackTrace();
+            }
+        }
+
+        /**
+         * Formats and flushes all the previously stored log records.
+         * <p>
+         * Every record is formatted into a single buffer, which is written to the sink at once,
+         * or to the file of the test when a failure log directory is defined.
+         *
+         * @param description the description of the test which created the logs.
+         * @throws IOException if the logs could not be written.
+         */
+        private void flushLogs(Description description) throws IOException {
+            evictExpiredLogs();
+            final FailureLogFiles.Output file = mRules.mFailureLogDirectory != null
+                    ? new FailureLogFiles.Output(mRules.mFailureLogDirectory, description,
+                    mRules.mCompressFailureLogs)
+                    : null;
+
+            try {
+                // The logs are written in chunks, so that they are never held in memory in their
+                // entirety.
+                final StringBuilder logBuilder = new StringBuilder();
+                mLogRecordStore.forEach(new LogRecordStore.Visitor() {
+                    @Override
+                    public void visit(LogRecordBuffer buffer, int index) throws IOException {
+                        appendLog(logBuilder, buffer.priorityAt(index), buffer.tagAt(index),
+                                buffer.messageAt(index), buffer.throwableAt(index),
+                                buffer.timestampAt(index), buffer.nanoTimeAt(index),
+                                buffer.threadIdAt(index), buffer.threadNameAt(index));
+                        if (logBuilder.length() >= FLUSH_CHUNK_SIZE) {
+                            writeChunk(logBuilder, file);
+                        }
+                    }
+
+                    @Override
+                    public void visitDiscarded(int count) {
+                        logBuilder
+                                .append("... ")
+                                .append(count)
+                                .append(" logs were discarded ...")
+                                .append(LogSinks.LINE_SEPARATOR);
+                    }
+                });
+                writeChunk(logBuilder, file);
+
+            } finally {
+                if (file != null) {
+                    long startNanos = startTiming();
+                    try {
+                        file.close();
+
+                    } finally {
+                        finishTiming(CaptureCounters.FLUSH_NANOS, startNanos);
+                    }
+                }
+            }
+
+            if (file != null && file.getFile() != null) {
+                write("Logs were written to " + file.getFile().getPath()
+                        + LogSinks.LINE_SEPARATOR);
+            }
+        }
+
+        /**
+         * Writes a chunk of formatted logs to the failure log file, or to the sink if there is no
+         * file, and then empties the chunk.
+         */
+        private void writeChunk(StringBuilder chunk, FailureLogFiles.Output file)
+                throws IOException {
+
+            if (chunk.length() == 0) {
+                return;
+            }
+            if (file == null) {
+                write(chunk);
+
+            } else {
+                long startNanos = startTiming();
+                try {
+                    file.write(chunk);
+
+                } finally {
+                    finishTiming(CaptureCounters.FLUSH_NANOS, startNanos);
+                }
+            }
+            chunk.setLength(0);
+        }
+
+        /**
+         * Discards the stored log records which are older than the retention window, as logs are
+         * otherwise only discarded when a newer log is stored.
+         */
+        private void evictExpiredLogs() {
+            if (mRules.mRetentionMillis != Long.MAX_VALUE) {
+                mLogRecordStore.evictBefore(System.currentTimeMillis() - mRules.mRetentionMillis);
+            }
+        }
+
+        /**
+         * Creates a snapshot of the stored log records, excluding the discarded records markers.
+         */
+        private LogRecords snapshotLogs() {
+            evictExpiredLogs();
+            final List<LogRecord> records = new ArrayList<>();
+            try {
+                mLogRecordStore.forEach(new LogRecordStore.Visitor() {
+                    @Override
+                    public void visit(LogRecordBuffer buffer, int index) {
+                        records.add(new LogRecord(buffer.priorityAt(index), buffer.tagAt(index),
+                                buffer.messageAt(index), buffer.throwableAt(index),
+                                buffer.timestampAt(index), buffer.threadIdAt(index),
+                                buffer.threadNameAt(index)));
+                    }
+
+                    @Override
+                    public void visitDiscarded(int count) {
+                    }
+                });
+
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to read the spilled logs", e);
+            }
+            return new LogRecords(records);
+        }
+
+        /**
+         * Flushes the stored log records after a failure, unless they have already been written.
+         *
+         * @param description the description of the test.
+         * @throws IOException if the logs could not be written.
+         */
+        void flushFailedTestLogs(Description description) throws IOException {
+            if (mRules.mOnlyLogWhenTestFails) {
+                flushLogs(description);
+            }
+        }
+
+        /**
+         * Flushes the stored log records after a failure, and then rethrows the failure.
+         *
+         * @param failure     the failure of the test.
+         * @param description the description of the test.
+         * @throws Throwable the failure, or a {@link MultipleFailureException} if the logs could
+         *                   not be written.
+         */
+        void flushLogsAndRethrow(Throwable failure, Description description)
+                throws Throwable {
+            try {
+                flushFailedTestLogs(description);
+
+            } catch (IOException e) {
+                throw new MultipleFailureException(Arrays.asList(failure, e));
+            }
+            throw failure;
+        }
+
+        /**
+         * Discards all the previously stored log records.
+         */
+        private void clearLogs() {
+            mLogRecordStore.clear();
+            mStackTraceRenderer.reset();
+        }
+
+        /**
+         * The decision made by {@link #isLoggable(String, int)} on a thread for an explicitly
+         * tagged log. It only applies to the log with the same tag and priority which follows it,
+         * and is consumed by that log.
+         */
+        private static final class FilterDecision {
+            static final int UNDECIDED = 0;
+            static final int ACCEPTED = 1;
+            static final int REJECTED = 2;
+
+            private String mTag;
+            private int mPriority;
+            private int mDecision = UNDECIDED;
+
+            void decide(String tag, int priority, boolean accepted) {
+                mTag = tag;
+                mPriority = priority;
+                mDecision = accepted ? ACCEPTED : REJECTED;
+            }
+
+            void clear() {
+                mTag = null;
+                mDecision = UNDECIDED;
+            }
+
+            /**
+             * @return the decision for the log, or {@link #UNDECIDED} if the filter must be
+             * evaluated.
+             */
+            int take(String tag, int priority) {
+                // Identity is used, as Timber passes the same tag to isLoggable and the log.
+                int decision = tag != null && tag == mTag && priority == mPriority
+                        ? mDecision : UNDECIDED;
+                clear();
+                return decision;
+            }
+        }
+    }
 }
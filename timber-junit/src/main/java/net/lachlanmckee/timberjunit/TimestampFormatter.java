@@ -0,0 +1,128 @@
+package net.lachlanmckee.timberjunit;
+
+import java.util.TimeZone;
+
+/**
+ * Formats log timestamps in the default time zone, without the overhead of a
+ * {@link java.text.DateFormat}.
+ * <p>
+ * The {@code HH:mm:ss} portion only changes once per second, so it is cached and shared between
+ * threads. The sub-second digits are appended directly to the builder.
+ */
+final class TimestampFormatter {
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final long MICROS_PER_SECOND = 1000000L;
+    private static final long SECONDS_PER_DAY = 86400L;
+
+    private final TimberTestRule.TimestampPrecision mPrecision;
+    private final long mAnchorMicros;
+    private final long mAnchorNanoTime;
+
+    private volatile CachedSecond mCachedSecond;
+
+    TimestampFormatter(TimberTestRule.TimestampPrecision precision) {
+        mPrecision = precision;
+
+        // Sub-millisecond times are derived from the nano time elapsed since this anchor.
+        mAnchorMicros = System.currentTimeMillis() * 1000L;
+        mAnchorNanoTime = System.nanoTime();
+    }
+
+    /**
+     * Appends a timestamp to the builder.
+     *
+     * @param builder   the builder the timestamp is appended to.
+     * @param timestamp the time of the log in milliseconds since the epoch.
+     * @param nanoTime  the {@link System#nanoTime()} of the log, which is only used when
+     *                  microsecond precision is required.
+     */
+    void append(StringBuilder builder, long timestamp, long nanoTime) {
+        if (mPrecision == TimberTestRule.TimestampPrecision.MICROSECONDS) {
+            long micros = mAnchorMicros + (nanoTime - mAnchorNanoTime) / 1000L;
+            appendSecond(builder, floorDiv(micros, MICROS_PER_SECOND));
+            builder.append('.');
+            appendPadded(builder, floorMod(micros, MICROS_PER_SECOND), 6);
+
+        } else {
+            // Matches the "HH:mm:ss:SSSSSSS" pattern which was previously used.
+            appendSecond(builder, floorDiv(timestamp, MILLIS_PER_SECOND));
+            builder.append(':');
+            appendPadded(builder, floorMod(timestamp, MILLIS_PER_SECOND), 7);
+        }
+    }
+
+    /**
+     * @return whether the nano time of each log is required to format its timestamp.
+     */
+    boolean requiresNanoTime() {
+        return mPrecision == TimberTestRule.TimestampPrecision.MICROSECONDS;
+    }
+
+    private void appendSecond(StringBuilder builder, long epochSecond) {
+        CachedSecond cachedSecond = mCachedSecond;
+        if (cachedSecond == null || cachedSecond.mEpochSecond != epochSecond) {
+            cachedSecond = new CachedSecond(epochSecond, formatSecond(epochSecond));
+            mCachedSecond = cachedSecond;
+        }
+        builder.append(cachedSecond.mText);
+    }
+
+    /**
+     * Formats the time of day as {@code HH:mm:ss}.
+     */
+    private static char[] formatSecond(long epochSecond) {
+        long epochMillis = epochSecond * MILLIS_PER_SECOND;
+        long localSecond = floorDiv(epochMillis + TimeZone.getDefault().getOffset(epochMillis),
+                MILLIS_PER_SECOND);
+        int secondOfDay = (int) floorMod(localSecond, SECONDS_PER_DAY);
+
+        int hours = secondOfDay / 3600;
+        int minutes = (secondOfDay / 60) % 60;
+        int seconds = secondOfDay % 60;
+
+        return new char[]{
+                (char) ('0' + hours / 10), (char) ('0' + hours % 10), ':',
+                (char) ('0' + minutes / 10), (char) ('0' + minutes % 10), ':',
+                (char) ('0' + seconds / 10), (char) ('0' + seconds % 10)
+        };
+    }
+
+    private static void appendPadded(StringBuilder builder, long value, int digits) {
+        for (long divisor = pow10(digits - 1); divisor > 0; divisor /= 10) {
+            builder.append((char) ('0' + (value / divisor) % 10));
+        }
+    }
+
+    private static long pow10(int exponent) {
+        long value = 1;
+        for (int i = 0; i < exponent; i++) {
+            value *= 10;
+        }
+        return value;
+    }
+
+    private static long floorDiv(long value, long divisor) {
+        long quotient = value / divisor;
+        if ((value % divisor != 0) && ((value < 0) != (divisor < 0))) {
+            quotient--;
+        }
+        return quotient;
+    }
+
+    private static long floorMod(long value, long divisor) {
+        return value - floorDiv(value, divisor) * divisor;
+    }
+
+    /**
+     * The formatted time of day for a single second.
+     */
+    private static final class CachedSecond {
+        private final long mEpochSecond;
+        private final char[] mText;
+
+        CachedSecond(long epochSecond, char[] text) {
+            mEpochSecond = epochSecond;
+            mText = text;
+        }
+    }
+}
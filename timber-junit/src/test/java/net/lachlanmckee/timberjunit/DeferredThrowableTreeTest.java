@@ -0,0 +1,102 @@
+package net.lachlanmckee.timberjunit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import timber.log.Timber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class DeferredThrowableTreeTest {
+
+    private final RecordingTree tree = new RecordingTree();
+
+    @Before
+    public void plantTree() {
+        Timber.plant(tree);
+    }
+
+    @After
+    public void uprootTree() {
+        Timber.uproot(tree);
+    }
+
+    @Test
+    public void throwableIsReceivedSeparatelyFromTheMessage() {
+        // given
+        IllegalStateException exception = new IllegalStateException("Failure");
+
+        // when
+        Timber.tag("Tag").e(exception, "Message");
+        Timber.tag("Tag").w(exception);
+
+        // then
+        assertEquals(2, tree.messages.size());
+        assertEquals("Message", tree.messages.get(0));
+        assertSame(exception, tree.throwables.get(0));
+        assertNull(tree.messages.get(1));
+        assertSame(exception, tree.throwables.get(1));
+    }
+
+    @Test
+    public void nestedLogDoesNotReceiveTheThrowableOfTheEnclosingLog() {
+        // given
+        IllegalStateException exception = new IllegalStateException("Failure");
+        Object argument = new Object() {
+            @Override
+            public String toString() {
+                Timber.tag("Tag").i("Inner");
+                return "argument";
+            }
+        };
+
+        // when
+        Timber.tag("Tag").e(exception, "Outer %s", argument);
+
+        // then
+        assertEquals(2, tree.messages.size());
+        assertEquals("Inner", tree.messages.get(0));
+        assertNull(tree.throwables.get(0));
+        assertEquals("Outer argument", tree.messages.get(1));
+        assertSame(exception, tree.throwables.get(1));
+    }
+
+    @Test
+    public void nestedLogWithThrowableKeepsTheThrowableOfTheEnclosingLog() {
+        // given
+        final IllegalStateException inner = new IllegalStateException("Inner");
+        IllegalStateException outer = new IllegalStateException("Outer");
+        Object argument = new Object() {
+            @Override
+            public String toString() {
+                Timber.tag("Tag").w(inner, "Inner");
+                return "argument";
+            }
+        };
+
+        // when
+        Timber.tag("Tag").e(outer, "Outer %s", argument);
+
+        // then
+        assertEquals(2, tree.messages.size());
+        assertSame(inner, tree.throwables.get(0));
+        assertSame(outer, tree.throwables.get(1));
+    }
+
+    private static final class RecordingTree extends DeferredThrowableTree {
+        private final List<String> messages = new ArrayList<>();
+        private final List<Throwable> throwables = new ArrayList<>();
+
+        @Override
+        protected void logRecord(int priority, String tag, String message, Throwable t) {
+            messages.add(message);
+            throwables.add(t);
+        }
+    }
+}
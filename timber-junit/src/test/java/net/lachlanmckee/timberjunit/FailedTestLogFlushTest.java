@@ -0,0 +1,74 @@
+package net.lachlanmckee.timberjunit;
+
+import org.junit.Test;
+import org.junit.runner.Description;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import timber.log.Timber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FailedTestLogFlushTest {
+
+    private static final Description DESCRIPTION =
+            Description.createTestDescription(FailedTestLogFlushTest.class, "test");
+
+    private static final int LOG_COUNT = 20000;
+
+    @Test
+    public void bufferedLogsAreWrittenInChunks() throws Exception {
+        verifyLogsAreWrittenInChunks(TimberTestRule.builder());
+    }
+
+    @Test
+    public void spilledLogsAreWrittenInChunks() throws Exception {
+        verifyLogsAreWrittenInChunks(TimberTestRule.builder().spillToDisk(100));
+    }
+
+    private static void verifyLogsAreWrittenInChunks(TimberTestRule.Rules rules)
+            throws Exception {
+
+        // given
+        final List<Integer> chunkLengths = new ArrayList<>();
+        final StringBuilder output = new StringBuilder();
+        TimberTestRule rule = rules
+                .showThread(false)
+                .showTimestamp(false)
+                .onlyLogWhenTestFails(true)
+                .logSink(new LogSink() {
+                    @Override
+                    public void write(CharSequence text) throws IOException {
+                        chunkLengths.add(text.length());
+                        output.append(text);
+                    }
+                })
+                .build();
+
+        TimberTestRule.BufferedJUnitTimberTree tree = rule.startCapture(false);
+        try {
+            for (int i = 0; i < LOG_COUNT; i++) {
+                Timber.tag("Flush").i("Message " + i);
+            }
+
+            // when
+            tree.flushFailedTestLogs(DESCRIPTION);
+
+        } finally {
+            rule.finishCapture(tree, DESCRIPTION, false);
+        }
+
+        // then
+        String[] lines = output.toString().split(LogSinks.LINE_SEPARATOR);
+        assertEquals(LOG_COUNT, lines.length);
+        assertEquals("I/Flush: Message " + (LOG_COUNT - 1), lines[LOG_COUNT - 1]);
+
+        assertTrue(chunkLengths.size() > 1);
+        for (int length : chunkLengths) {
+            assertTrue(length < 65 * 1024);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package net.lachlanmckee.timberjunit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class LogRecordBufferTest {
+
+    @Test
+    public void recordsWrapAroundTheBuffer() {
+        // given
+        LogRecordBuffer buffer = new LogRecordBuffer(4);
+        add(buffer, 1, "Tag", "First");
+        add(buffer, 2, "Tag", "Second");
+        add(buffer, 3, "Tag", "Third");
+        buffer.removeFirst();
+        buffer.removeFirst();
+
+        // when
+        add(buffer, 4, "Tag", "Fourth");
+        add(buffer, 5, "Tag", "Fifth");
+        add(buffer, 6, "Tag", "Sixth");
+
+        // then
+        assertEquals(4, buffer.capacity());
+        assertMessages(buffer, "Third", "Fourth", "Fifth", "Sixth");
+        assertEquals(3, buffer.timestampAt(0));
+        assertEquals(6, buffer.timestampAt(3));
+    }
+
+    @Test
+    public void wrappedRecordsKeepTheirOrderWhenTheBufferGrows() {
+        // given
+        LogRecordBuffer buffer = new LogRecordBuffer(4);
+        for (int i = 1; i <= 4; i++) {
+            add(buffer, i, "Tag", "Message " + i);
+        }
+        buffer.removeFirst();
+        add(buffer, 5, "Tag", "Message 5");
+
+        // when
+        add(buffer, 6, "Tag", "Message 6");
+
+        // then
+        assertEquals(8, buffer.capacity());
+        assertMessages(buffer, "Message 2", "Message 3", "Message 4", "Message 5", "Message 6");
+    }
+
+    @Test
+    public void everyFieldIsKept() {
+        // given
+        LogRecordBuffer buffer = new LogRecordBuffer(2);
+        IllegalStateException exception = new IllegalStateException("Failure");
+        add(buffer, 1, "Old", "Old");
+        buffer.removeFirst();
+
+        // when
+        buffer.add(LogPriority.ERROR, "\u65e5\u672c", "\u00e9t\u00e9 \u2603", exception, 2, 3, 4,
+                "worker");
+        buffer.add(LogPriority.DEBUG, null, null, null, 5, 6, 7, null);
+
+        // then
+        assertEquals(LogPriority.ERROR, buffer.priorityAt(0));
+        assertEquals("\u65e5\u672c", buffer.tagAt(0));
+        assertEquals("\u00e9t\u00e9 \u2603", buffer.messageAt(0));
+        assertSame(exception, buffer.throwableAt(0));
+        assertEquals(2, buffer.timestampAt(0));
+        assertEquals(3, buffer.nanoTimeAt(0));
+        assertEquals(4, buffer.threadIdAt(0));
+        assertEquals("worker", buffer.threadNameAt(0));
+
+        assertNull(buffer.tagAt(1));
+        assertNull(buffer.messageAt(1));
+        assertNull(buffer.throwableAt(1));
+        assertNull(buffer.threadNameAt(1));
+    }
+
+    @Test
+    public void bytesAreReclaimedWhenRecordsAreRemoved() {
+        // given
+        LogRecordBuffer buffer = new LogRecordBuffer(4);
+        add(buffer, 1, "Tag", "First");
+        add(buffer, 2, "Tag", "Second!");
+
+        // when
+        buffer.removeFirst();
+
+        // then
+        assertEquals(LogRecordBuffer.estimateBytes("Tag", "Second!"), buffer.bytes());
+        buffer.removeFirst();
+        assertEquals(0, buffer.bytes());
+    }
+
+    @Test
+    public void tagsAreKeptWhenTheStringTablesAreCompacted() {
+        // given
+        LogRecordBuffer buffer = new LogRecordBuffer(16);
+
+        // when
+        for (int i = 0; i < 5000; i++) {
+            buffer.add(LogPriority.INFO, "Tag " + i, "Message " + i, null, i, i, i,
+                    "Thread " + i);
+            if (buffer.size() > 10) {
+                buffer.removeFirst();
+            }
+        }
+
+        // then
+        assertEquals(10, buffer.size());
+        for (int index = 0; index < 10; index++) {
+            int i = 4990 + index;
+            assertEquals("Tag " + i, buffer.tagAt(index));
+            assertEquals("Thread " + i, buffer.threadNameAt(index));
+            assertEquals("Message " + i, buffer.messageAt(index));
+        }
+    }
+
+    @Test
+    public void clearRemovesEveryRecordAndKeepsTheCapacity() {
+        // given
+        LogRecordBuffer buffer = new LogRecordBuffer(2);
+        for (int i = 1; i <= 5; i++) {
+            add(buffer, i, "Tag", "Message " + i);
+        }
+
+        // when
+        buffer.clear();
+
+        // then
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.peakSize());
+        assertEquals(0, buffer.bytes());
+        assertEquals(8, buffer.capacity());
+
+        add(buffer, 6, "Tag", "Message 6");
+        assertMessages(buffer, "Message 6");
+        assertEquals(1, buffer.peakSize());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void removedRecordsCannotBeRead() {
+        // given
+        LogRecordBuffer buffer = new LogRecordBuffer(2);
+        add(buffer, 1, "Tag", "First");
+        buffer.removeFirst();
+
+        // when
+        buffer.messageAt(0);
+    }
+
+    private static void add(LogRecordBuffer buffer, long timestamp, String tag, String message) {
+        buffer.add(LogPriority.INFO, tag, message, null, timestamp, timestamp, 1, "main");
+    }
+
+    private static void assertMessages(LogRecordBuffer buffer, String... messages) {
+        assertEquals(messages.length, buffer.size());
+        for (int i = 0; i < messages.length; i++) {
+            assertEquals(messages[i], buffer.messageAt(i));
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package net.lachlanmckee.timberjunit;
+
+import org.junit.Test;
+import org.junit.runner.Description;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class LogRecordStorePoolTest {
+
+    private static final Description DESCRIPTION =
+            Description.createTestDescription(LogRecordStorePoolTest.class, "test");
+
+    private final List<Integer> createdCapacities = new ArrayList<>();
+
+    private final LogRecordStorePool pool = new LogRecordStorePool(
+            new LogRecordStorePool.Factory() {
+                @Override
+                public LogRecordStore create(int initialCapacity) {
+                    createdCapacities.add(initialCapacity);
+                    return new SynchronizedLogRecordStore(Integer.MAX_VALUE, Long.MAX_VALUE,
+                            TimberTestRule.OverflowPolicy.KEEP_LAST, Long.MAX_VALUE,
+                            initialCapacity);
+                }
+            });
+
+    @Test
+    public void releasedStoresAreReused() {
+        // given
+        LogRecordStore store = pool.acquire();
+
+        // when
+        pool.release(store, 10);
+
+        // then
+        assertSame(store, pool.acquire());
+        assertEquals(1, createdCapacities.size());
+    }
+
+    @Test
+    public void onlyALimitedNumberOfStoresArePooled() {
+        // given
+        List<LogRecordStore> stores = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            stores.add(pool.acquire());
+        }
+
+        // when
+        for (LogRecordStore store : stores) {
+            pool.release(store, 0);
+        }
+
+        // then
+        for (int i = 0; i < 8; i++) {
+            assertSame(stores.get(i), pool.acquire());
+        }
+        assertNotSame(stores.get(8), pool.acquire());
+        assertEquals(10, createdCapacities.size());
+    }
+
+    @Test
+    public void newStoresAreSizedFromTheHighWaterMark() {
+        // given
+        pool.release(pool.acquire(), 1000);
+        pool.acquire();
+
+        // when
+        pool.acquire();
+
+        // then
+        assertEquals(64, (int) createdCapacities.get(0));
+        assertEquals(1000, (int) createdCapacities.get(1));
+    }
+
+    @Test
+    public void highWaterMarkDecaysAfterQuieterTests() {
+        // given
+        pool.release(pool.acquire(), 1000);
+        pool.acquire();
+
+        // when
+        pool.release(pool.acquire(), 0);
+        pool.acquire();
+        pool.acquire();
+
+        // then
+        assertEquals(750, (int) createdCapacities.get(2));
+    }
+
+    @Test
+    public void initialCapacityIsLimited() {
+        // given
+        pool.release(pool.acquire(), 1 << 20);
+        pool.acquire();
+
+        // when
+        pool.acquire();
+
+        // then
+        assertEquals(1 << 16, (int) createdCapacities.get(1));
+    }
+
+    @Test
+    public void oversizedStoresAreDiscarded() {
+        // given
+        LogRecordStore store = pool.acquire();
+        store.setOwner(this);
+        for (int i = 0; i < 1000; i++) {
+            store.add(this, LogPriority.INFO, "Tag", "Message", null, i, i, 1, "main");
+        }
+        store.clear();
+
+        // when
+        pool.release(store, 10);
+
+        // then
+        assertNotSame(store, pool.acquire());
+    }
+
+    @Test
+    public void recordsOfThePreviousOwnerAreRejected() throws Exception {
+        // Each rule uses an unusual buffer limit, so that it has its own pool.
+        verifyRecordsOfThePreviousOwnerAreRejected(TimberTestRule.builder()
+                .maxBufferedRecords(1001));
+        verifyRecordsOfThePreviousOwnerAreRejected(TimberTestRule.builder()
+                .maxBufferedRecords(1001)
+                .perThreadBuffers(true));
+        verifyRecordsOfThePreviousOwnerAreRejected(TimberTestRule.builder()
+                .spillToDisk(1001));
+    }
+
+    @Test
+    public void pooledStoresDoNotRetainLoggedObjects() throws Exception {
+        // Each rule uses an unusual buffer limit, so that it has its own pool.
+        verifyPooledStoresDoNotRetainLoggedObjects(TimberTestRule.builder()
+                .maxBufferedRecords(1002));
+        verifyPooledStoresDoNotRetainLoggedObjects(TimberTestRule.builder()
+                .maxBufferedRecords(1002)
+                .perThreadBuffers(true));
+        verifyPooledStoresDoNotRetainLoggedObjects(TimberTestRule.builder()
+                .spillToDisk(1002));
+    }
+
+    private static void verifyPooledStoresDoNotRetainLoggedObjects(TimberTestRule.Rules rules)
+            throws Exception {
+
+        // given
+        TimberTestRule rule = rules.retainLogs(true).build();
+
+        // when
+        WeakReference<Throwable> throwable = logThrowableInTest(rule);
+
+        // then
+        for (int i = 0; i < 20 && throwable.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(throwable.get());
+    }
+
+    /**
+     * @return a reference to a throwable logged by a test which has completed.
+     */
+    private static WeakReference<Throwable> logThrowableInTest(TimberTestRule rule)
+            throws Exception {
+
+        TimberTestRule.BufferedJUnitTimberTree tree = rule.startCapture(false);
+        Throwable throwable = new IllegalStateException("Failure");
+        try {
+            tree.e(throwable, "Message");
+
+        } finally {
+            rule.finishCapture(tree, DESCRIPTION, false);
+        }
+        return new WeakReference<>(throwable);
+    }
+
+    /**
+     * Simulates a thread which is still logging to the tree of a completed test once its store is
+     * reused by the next test.
+     */
+    private static void verifyRecordsOfThePreviousOwnerAreRejected(TimberTestRule.Rules rules)
+            throws Exception {
+
+        // given
+        TimberTestRule rule = rules.retainLogs(true).build();
+        TimberTestRule.BufferedJUnitTimberTree previousTree = rule.startCapture(false);
+        LogRecordStore store = previousTree.mLogRecordStore;
+        rule.finishCapture(previousTree, DESCRIPTION, false);
+
+        TimberTestRule.BufferedJUnitTimberTree tree = rule.startCapture(false);
+        try {
+            assertSame(store, tree.mLogRecordStore);
+
+            // when
+            previousTree.e("Late");
+            tree.e("Current");
+
+            // then
+            LogRecords records = rule.logs().assertCount(1);
+            assertEquals("Current", records.get(0).getMessage());
+
+        } finally {
+            rule.finishCapture(tree, DESCRIPTION, false);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package net.lachlanmckee.timberjunit;
+
+import org.junit.Test;
+import org.junit.runner.Description;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import timber.log.Timber;
+
+import static org.junit.Assert.assertEquals;
+
+public class LogRouterTest {
+
+    private static final Description DESCRIPTION =
+            Description.createTestDescription(LogRouterTest.class, "test");
+
+    @Test
+    public void logsFromUnownedThreadsAreFilteredOnceByEachCapture() throws Exception {
+        // given
+        ExecutorService unownedThread = Executors.newSingleThreadExecutor();
+        Runnable noOp = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        // The thread is created before any capture, so that it is not associated with either.
+        unownedThread.submit(noOp).get();
+
+        AtomicReference<CaptureMetrics> verboseMetrics = new AtomicReference<>();
+        AtomicReference<CaptureMetrics> debugMetrics = new AtomicReference<>();
+        TimberTestRule verboseRule = isolatedRule(LogPriority.VERBOSE, verboseMetrics);
+        TimberTestRule debugRule = isolatedRule(LogPriority.DEBUG, debugMetrics);
+
+        // The rejecting capture is asked first, before the accepting capture allows the log.
+        TimberTestRule.BufferedJUnitTimberTree debugTree = debugRule.startCapture(false);
+        TimberTestRule.BufferedJUnitTimberTree verboseTree = verboseRule.startCapture(false);
+
+        // when
+        try {
+            unownedThread.submit(new Runnable() {
+                @Override
+                public void run() {
+                    Timber.tag("Unowned").v("Verbose");
+                    Timber.tag("Unowned").d("Debug");
+                }
+            }).get();
+
+        } finally {
+            verboseRule.finishCapture(verboseTree, DESCRIPTION, false);
+            debugRule.finishCapture(debugTree, DESCRIPTION, false);
+            unownedThread.shutdown();
+            unownedThread.awaitTermination(1, TimeUnit.SECONDS);
+        }
+
+        // then
+        assertEquals(2, verboseMetrics.get().getCapturedCount());
+        assertEquals(0, verboseMetrics.get().getRejectedCount());
+        assertEquals(1, debugMetrics.get().getCapturedCount());
+        assertEquals(1, debugMetrics.get().getRejectedCount());
+    }
+
+    private static TimberTestRule isolatedRule(int minPriority,
+                                               final AtomicReference<CaptureMetrics> metrics) {
+        return TimberTestRule.builder()
+                .minPriority(minPriority)
+                .onlyLogWhenTestFails(true)
+                .isolateParallelTests(true)
+                .listener(new TimberTestRule.Listener() {
+                    @Override
+                    public void testFinished(Description description,
+                                             CaptureMetrics testMetrics) {
+                        metrics.set(testMetrics);
+                    }
+
+                    @Override
+                    public void testClassFinished(Description description,
+                                                  CaptureMetrics classMetrics) {
+                    }
+                })
+                .build();
+    }
+}
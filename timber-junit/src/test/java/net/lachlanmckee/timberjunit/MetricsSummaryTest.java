@@ -0,0 +1,52 @@
+package net.lachlanmckee.timberjunit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MetricsSummaryTest {
+
+    private static final String LINE_SEPARATOR = LogSinks.LINE_SEPARATOR;
+
+    private final MetricsSummary summary = new MetricsSummary();
+
+    @Test
+    public void nothingIsRenderedWithoutMetrics() {
+        assertNull(summary.render());
+    }
+
+    @Test
+    public void classesAreOrderedByTheTimeSpentFormattingAndFlushing() {
+        // given
+        summary.add("Quiet", new CaptureMetrics(1, 0, 10, 1000000, 0, 5000000));
+        summary.add("Verbose", new CaptureMetrics(100, 5, 2000, 2000000, 3000000, 4000000));
+        summary.add("Formatting", new CaptureMetrics(10, 0, 200, 4000000, 0, 1000000));
+
+        // when
+        String rendered = summary.render();
+
+        // then
+        assertEquals("Timber capture metrics by test class:" + LINE_SEPARATOR
+                + "  Verbose: 100 captured, 5 rejected, 2000 bytes buffered, 4.000 ms logging, "
+                + "2.000 ms formatting, 3.000 ms flushing" + LINE_SEPARATOR
+                + "  Formatting: 10 captured, 0 rejected, 200 bytes buffered, 1.000 ms logging, "
+                + "4.000 ms formatting, 0.000 ms flushing" + LINE_SEPARATOR
+                + "  Quiet: 1 captured, 0 rejected, 10 bytes buffered, 5.000 ms logging, "
+                + "1.000 ms formatting, 0.000 ms flushing" + LINE_SEPARATOR, rendered);
+    }
+
+    @Test
+    public void metricsOfTheSameClassAreAdded() {
+        // given
+        summary.add("Test", new CaptureMetrics(1, 2, 3, 1000000, 2000000, 3000000));
+
+        // when
+        summary.add("Test", new CaptureMetrics(4, 5, 6, 1000000, 2000000, 3000000));
+
+        // then
+        assertEquals("Timber capture metrics by test class:" + LINE_SEPARATOR
+                + "  Test: 5 captured, 7 rejected, 9 bytes buffered, 6.000 ms logging, "
+                + "2.000 ms formatting, 4.000 ms flushing" + LINE_SEPARATOR, summary.render());
+    }
+}
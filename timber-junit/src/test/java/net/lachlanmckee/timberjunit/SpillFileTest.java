@@ -0,0 +1,147 @@
+package net.lachlanmckee.timberjunit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SpillFileTest {
+
+    private final SpillFile spillFile = new SpillFile();
+
+    @After
+    public void deleteSpillFile() {
+        spillFile.delete();
+    }
+
+    @Test
+    public void latin1AndUtf16StringsAreRestored() throws IOException {
+        // given
+        IllegalStateException exception = new IllegalStateException("Failure");
+        spillFile.append(LogPriority.INFO, "Tag", "caf\u00e9", null, 1, 2, 3, "main");
+        spillFile.append(LogPriority.ERROR, "\u65e5\u672c", "\u00e9t\u00e9 \u2603", exception,
+                4, 5, 6, null);
+        spillFile.append(LogPriority.DEBUG, null, null, null, 7, 8, 9, "");
+
+        // when
+        List<String> records = visit(spillFile);
+
+        // then
+        assertEquals(3, records.size());
+        assertEquals("4|Tag|caf\u00e9|null|1|2|3|main", records.get(0));
+        assertEquals("6|\u65e5\u672c|\u00e9t\u00e9 \u2603|Failure|4|5|6|null", records.get(1));
+        assertEquals("3|null|null|null|7|8|9|", records.get(2));
+    }
+
+    @Test
+    public void recordsAreRestoredAcrossBufferBoundaries() throws IOException {
+        // given
+        StringBuilder largeMessage = new StringBuilder();
+        for (int i = 0; i < 50000; i++) {
+            largeMessage.append(i % 2 == 0 ? 'x' : '\u0416');
+        }
+        for (int i = 0; i < 10000; i++) {
+            spillFile.append(LogPriority.INFO, "Tag", "Message " + i, null, i, i, 1, "main");
+            if (i % 2500 == 0) {
+                spillFile.append(LogPriority.WARN, "Large", largeMessage.toString(), null, i, i,
+                        1, "main");
+            }
+        }
+
+        // when
+        List<String> records = visit(spillFile);
+
+        // then
+        assertEquals(10004, records.size());
+        int index = 0;
+        for (int i = 0; i < 10000; i++) {
+            assertEquals("4|Tag|Message " + i + "|null|" + i + "|" + i + "|1|main",
+                    records.get(index++));
+            if (i % 2500 == 0) {
+                assertEquals("5|Large|" + largeMessage + "|null|" + i + "|" + i + "|1|main",
+                        records.get(index++));
+            }
+        }
+    }
+
+    @Test
+    public void recordsCanBeAppendedAfterVisiting() throws IOException {
+        // given
+        spillFile.append(LogPriority.INFO, "Tag", "First", null, 1, 1, 1, "main");
+        visit(spillFile);
+
+        // when
+        spillFile.append(LogPriority.INFO, "Tag", "Second", null, 2, 2, 1, "main");
+
+        // then
+        List<String> records = visit(spillFile);
+        assertEquals(2, records.size());
+        assertEquals("4|Tag|Second|null|2|2|1|main", records.get(1));
+    }
+
+    @Test
+    public void deletedFileCanBeReused() throws IOException {
+        // given
+        spillFile.append(LogPriority.INFO, "Tag", "First", null, 1, 1, 1, "main");
+        spillFile.delete();
+
+        // when
+        spillFile.append(LogPriority.INFO, "Tag", "Second", null, 2, 2, 1, "main");
+
+        // then
+        List<String> records = visit(spillFile);
+        assertEquals(1, records.size());
+        assertEquals("4|Tag|Second|null|2|2|1|main", records.get(0));
+    }
+
+    @Test
+    public void throwablesAreKeptInMemory() throws IOException {
+        // given
+        final IllegalStateException exception = new IllegalStateException("Failure");
+        spillFile.append(LogPriority.ERROR, "Tag", null, exception, 1, 1, 1, "main");
+
+        // when
+        final List<Throwable> throwables = new ArrayList<>();
+        spillFile.forEach(new LogRecordBuffer(1), new LogRecordStore.Visitor() {
+            @Override
+            public void visit(LogRecordBuffer buffer, int index) {
+                assertNull(buffer.messageAt(index));
+                throwables.add(buffer.throwableAt(index));
+            }
+
+            @Override
+            public void visitDiscarded(int count) {
+            }
+        });
+
+        // then
+        assertEquals(1, throwables.size());
+        assertSame(exception, throwables.get(0));
+    }
+
+    private static List<String> visit(SpillFile spillFile) throws IOException {
+        final List<String> records = new ArrayList<>();
+        spillFile.forEach(new LogRecordBuffer(1), new LogRecordStore.Visitor() {
+            @Override
+            public void visit(LogRecordBuffer buffer, int index) {
+                Throwable throwable = buffer.throwableAt(index);
+                records.add(buffer.priorityAt(index) + "|" + buffer.tagAt(index) + "|"
+                        + buffer.messageAt(index) + "|"
+                        + (throwable != null ? throwable.getMessage() : null) + "|"
+                        + buffer.timestampAt(index) + "|" + buffer.nanoTimeAt(index) + "|"
+                        + buffer.threadIdAt(index) + "|" + buffer.threadNameAt(index));
+            }
+
+            @Override
+            public void visitDiscarded(int count) {
+            }
+        });
+        return records;
+    }
+}
@@ -0,0 +1,68 @@
+package net.lachlanmckee.timberjunit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class StringTableTest {
+
+    private final StringTable table = new StringTable();
+
+    @Test
+    public void equalStringsShareAnId() {
+        // when
+        int id = table.intern("Tag");
+        int otherId = table.intern("Other");
+
+        // then
+        assertEquals(id, table.intern(new String("Tag")));
+        assertNotEquals(id, otherId);
+        assertEquals("Tag", table.get(id));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void nullIsNotInterned() {
+        // when
+        int id = table.intern(null);
+
+        // then
+        assertEquals(StringTable.NULL_ID, id);
+        assertNull(table.get(id));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void tableGrowsToHoldEveryString() {
+        // when
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, table.intern("Tag " + i));
+        }
+
+        // then
+        assertEquals(100, table.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("Tag " + i, table.get(i));
+        }
+    }
+
+    @Test
+    public void clearRemovesEveryString() {
+        // given
+        String tag = "Tag";
+        table.intern("Other");
+        table.intern(tag);
+
+        // when
+        table.clear();
+
+        // then
+        assertEquals(0, table.size());
+        // The most recently interned string must not be returned from the cleared table.
+        assertEquals(0, table.intern(tag));
+        assertEquals(tag, table.get(0));
+        assertEquals(1, table.size());
+    }
+}
@@ -0,0 +1,88 @@
+package net.lachlanmckee.timberjunit;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+
+public class ThreadLocalLogRecordStoreTest {
+
+    private static final int THREAD_COUNT = 4;
+
+    @Test
+    public void recordsAreVisitedInOrderWhileThreadsEvictRecords() throws Exception {
+        // given
+        final ThreadLocalLogRecordStore store = new ThreadLocalLogRecordStore(50, Long.MAX_VALUE,
+                TimberTestRule.OverflowPolicy.KEEP_LAST, Long.MAX_VALUE, 16);
+        final Object owner = new Object();
+        store.setOwner(owner);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        Thread[] threads = new Thread[THREAD_COUNT];
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            final String tag = "Thread " + i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int sequence = 0; running.get(); sequence++) {
+                        store.add(owner, LogPriority.INFO, tag, String.valueOf(sequence), null,
+                                0, System.nanoTime(), 0, null);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        // when
+        try {
+            for (int i = 0; i < 500; i++) {
+                verifyContiguousSequences(store);
+            }
+
+        } finally {
+            running.set(false);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        // then
+        verifyContiguousSequences(store);
+    }
+
+    /**
+     * Each thread only keeps its most recent records, so the records of each thread must be a
+     * contiguous sequence, preceded by a single discarded marker once records have been evicted.
+     */
+    private static void verifyContiguousSequences(LogRecordStore store) throws IOException {
+        final Map<String, Integer> lastSequences = new HashMap<>();
+        final int[] discardedMarkers = new int[1];
+        store.forEach(new LogRecordStore.Visitor() {
+            @Override
+            public void visit(LogRecordBuffer buffer, int index) {
+                String tag = buffer.tagAt(index);
+                int sequence = Integer.parseInt(buffer.messageAt(index));
+                Integer lastSequence = lastSequences.put(tag, sequence);
+                if (lastSequence != null) {
+                    assertEquals(tag, lastSequence + 1, sequence);
+                }
+            }
+
+            @Override
+            public void visitDiscarded(int count) {
+                discardedMarkers[0]++;
+            }
+        });
+
+        int evictingThreads = 0;
+        for (Integer lastSequence : lastSequences.values()) {
+            if (lastSequence >= 50) {
+                evictingThreads++;
+            }
+        }
+        assertEquals(evictingThreads, discardedMarkers[0]);
+    }
+}